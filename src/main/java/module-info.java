@@ -22,6 +22,8 @@ module org.microbean.clientproxy.bytebuddy {
 
   exports org.microbean.clientproxy.bytebuddy;
 
+  requires jdk.unsupported;
+
   requires transitive net.bytebuddy;
 
   requires transitive org.microbean.bean;
@@ -13,14 +13,40 @@
  */
 package org.microbean.clientproxy.bytebuddy;
 
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.lang.System.Logger;
+
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodHandles.Lookup;
 
+import java.nio.file.Path;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
-import net.bytebuddy.dynamic.DynamicType;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import java.util.function.Function;
 
-import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
+import javax.lang.model.element.TypeElement;
+
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+
+import net.bytebuddy.jar.asm.ClassReader;
 
 import net.bytebuddy.pool.TypePool;
 
@@ -29,22 +55,95 @@ import org.microbean.construct.Domain;
 import org.microbean.reference.AbstractClientProxier;
 import org.microbean.reference.ProxySpecification;
 
+import static java.lang.System.Logger.Level.WARNING;
+
+import static java.lang.invoke.MethodHandles.Lookup.ClassOption.NESTMATE;
+
+import static org.microbean.clientproxy.bytebuddy.BBClientProxyClassGenerator.Option.COMPACT;
+
 /**
  * An {@link AbstractClientProxier} that uses <a href="https://bytebuddy.net/#/">Byte Buddy</a> to {@linkplain
  * #generate(ProxySpecification) generate} {@linkplain org.microbean.reference.ClientProxy client proxies}.
  *
+ * <p>Generated class files are stored in a {@link ClientProxyClassCache} under a structural fingerprint of the client
+ * proxy class' name, superclass, interfaces and generator configuration. A {@link BBClientProxier} that finds a
+ * suitable class file in its {@link ClientProxyClassCache}, perhaps because another {@link BBClientProxier} generated
+ * it, defines it directly without involving Byte Buddy.</p>
+ *
+ * <p>Generation is deferred until a client proxy class is actually needed and cannot be loaded. A client proxy class
+ * that was generated ahead of time, for example at build time by writing the {@linkplain #definition(ProxySpecification)
+ * definitions} of the relevant client proxy classes into a project's output directory with {@link
+ * ClientProxyClassDefinition#saveIn(Path)}, will therefore simply be loaded, and no generation will occur at all. Such
+ * a definition records its fingerprint, and a client proxy class generated ahead of time whose fingerprint no longer
+ * matches, because its superclass or interfaces have changed or because it was generated by another version of {@link
+ * BBClientProxyClassGenerator} or with other {@linkplain BBClientProxyClassGenerator.Option options}, is ignored and
+ * generated afresh. Checking costs one fingerprint computation, which walks the client proxy class' supertypes through
+ * the {@link Domain}, the first time each such client proxy class is loaded.</p>
+ *
+ * <p>A {@link BBClientProxier} may {@linkplain ClientProxyManifest#record(ProxySpecification) record} every client proxy
+ * class it generates in a {@link ClientProxyManifest}. On a later start, a {@link BBClientProxier} can {@linkplain
+ * #preload(ClientProxyManifest, ClassLoader, Executor) preload} the client proxy classes listed in such a manifest in
+ * parallel, before they are first needed.</p>
+ *
+ * <p>Client proxy classes may also be {@linkplain #clientProxyClasses(Collection, ClassLoader, Executor) loaded or
+ * generated in batches}, in parallel, or {@linkplain #prewarm(Collection, ClassLoader, Executor) prewarmed} in the
+ * background.</p>
+ *
+ * <p>A given client proxy class is loaded or generated by at most one thread at a time for a given {@link ClassLoader}.
+ * Other threads that need it at the same time wait for that thread's result without holding any monitors, so virtual
+ * threads waiting in this way do not pin their carrier threads.</p>
+ *
+ * <p>By default, client proxy classes are defined as ordinary classes, and so remain loaded as long as the {@link
+ * ClassLoader} that defined them does. A {@link BBClientProxier} may instead be {@linkplain #BBClientProxier(Domain,
+ * TypeDefinitions, BBClientProxyClassGenerator, ClientProxyClassCache, ClientProxyManifest, Function) configured} to
+ * define them as {@linkplain Lookup#defineHiddenClass(byte[], boolean, Lookup.ClassOption...) hidden classes}. A hidden
+ * client proxy class is not registered with any {@link ClassLoader}, is invisible to {@link Class#forName(String,
+ * boolean, ClassLoader)}, and is unloaded as soon as neither it nor any of its instances is reachable, whereupon it
+ * will be defined again, normally from the {@link ClientProxyClassCache}, if it is needed again.</p>
+ *
+ * <p>A {@link BBClientProxier} remembers the client proxy classes it loads or defines without keeping either them or
+ * the {@link ClassLoader}s through which they were requested reachable. A long-lived {@link BBClientProxier} therefore
+ * does not prevent an application's {@link ClassLoader}, or the client proxy classes defined in it, from being
+ * unloaded when the application is redeployed. The number of such client proxy classes that are still loaded is
+ * available from the {@link #clientProxyClassCount()} method.</p>
+ *
  * @author <a href="https://about.me/lairdnelson" target="_top">Laird Nelson</a>
  *
  * @see BBClientProxyClassGenerator
  */
-public final class BBClientProxier extends AbstractClientProxier<DynamicType.Unloaded<?>> {
+public final class BBClientProxier extends AbstractClientProxier<ProxySpecification> {
+
+  private static final Logger LOGGER = System.getLogger(BBClientProxier.class.getName());
+
+  private final Domain domain;
 
   private final TypeDefinitions tds;
 
   private final BBClientProxyClassGenerator g;
 
+  private final ClientProxyClassCache cache;
+
+  private final ClientProxyManifest manifest; // nullable
+
+  // Client proxy classes being loaded or generated, so that each is loaded or generated by only one thread.
+  private final ConcurrentMap<InFlight, CompletableFuture<Class<?>>> inFlight;
+
+  // Full privilege Lookups for superclasses in which hidden client proxy classes will be defined. Nullable.
+  private final Function<? super Class<?>, ? extends Lookup> hiddenClassLookups;
+
+  // Client proxy classes this BBClientProxier has loaded or defined, which it does not keep reachable.
+  private final ClientProxyClassRegistry registry;
+
   private static final Lookup lookup = MethodHandles.lookup(); // or instance variable?
 
+  // lookup.in(c), computed once per class.
+  private static final ClassValue<Lookup> lookups = new ClassValue<>() {
+      @Override // ClassValue<Lookup>
+      protected final Lookup computeValue(final Class<?> c) {
+        return lookup.in(c);
+      }
+    };
+
   /**
    * Creates a new {@link BBClientProxier}.
    *
@@ -90,36 +189,691 @@ public final class BBClientProxier extends AbstractClientProxier<DynamicType.Unl
    * @param g a {@link BBClientProxyClassGenerator}; must not be {@code null}
    *
    * @exception NullPointerException if any argument is {@code null}
+   *
+   * @exception IllegalArgumentException if {@code g} generates client proxy classes {@linkplain
+   * BBClientProxyClassGenerator.Option#CONSTRUCTORLESS without constructors}
+   *
+   * @see ClientProxyClassCache#shared()
+   *
+   * @see #BBClientProxier(Domain, TypeDefinitions, BBClientProxyClassGenerator, ClientProxyClassCache)
    */
   public BBClientProxier(final Domain domain,
                          final TypeDefinitions tds,
                          final BBClientProxyClassGenerator g) {
+    this(domain, tds, g, ClientProxyClassCache.shared());
+  }
+
+  /**
+   * Creates a new {@link BBClientProxier}.
+   *
+   * @param domain a {@link Domain}; must not be {@code null}
+   *
+   * @param tds a {@link TypeDefinitions}; must not be {@code null}
+   *
+   * @param g a {@link BBClientProxyClassGenerator}; must not be {@code null}
+   *
+   * @param cache a {@link ClientProxyClassCache}; must not be {@code null}
+   *
+   * @exception NullPointerException if any argument is {@code null}
+   *
+   * @exception IllegalArgumentException if {@code g} generates client proxy classes {@linkplain
+   * BBClientProxyClassGenerator.Option#CONSTRUCTORLESS without constructors}
+   *
+   * @see #BBClientProxier(Domain, TypeDefinitions, BBClientProxyClassGenerator, ClientProxyClassCache,
+   * ClientProxyManifest)
+   */
+  public BBClientProxier(final Domain domain,
+                         final TypeDefinitions tds,
+                         final BBClientProxyClassGenerator g,
+                         final ClientProxyClassCache cache) {
+    this(domain, tds, g, cache, null);
+  }
+
+  /**
+   * Creates a new {@link BBClientProxier}.
+   *
+   * @param domain a {@link Domain}; must not be {@code null}
+   *
+   * @param tds a {@link TypeDefinitions}; must not be {@code null}
+   *
+   * @param g a {@link BBClientProxyClassGenerator}; must not be {@code null}
+   *
+   * @param cache a {@link ClientProxyClassCache}; must not be {@code null}
+   *
+   * @param manifest a {@link ClientProxyManifest} in which every client proxy class this {@link BBClientProxier}
+   * generates will be {@linkplain ClientProxyManifest#record(ProxySpecification) recorded}; may be {@code null}
+   *
+   * @exception NullPointerException if {@code domain}, {@code tds}, {@code g} or {@code cache} is {@code null}
+   *
+   * @exception IllegalArgumentException if {@code g} generates client proxy classes {@linkplain
+   * BBClientProxyClassGenerator.Option#CONSTRUCTORLESS without constructors}
+   *
+   * @see #BBClientProxier(Domain, TypeDefinitions, BBClientProxyClassGenerator, ClientProxyClassCache,
+   * ClientProxyManifest, Function)
+   */
+  public BBClientProxier(final Domain domain,
+                         final TypeDefinitions tds,
+                         final BBClientProxyClassGenerator g,
+                         final ClientProxyClassCache cache,
+                         final ClientProxyManifest manifest) {
+    this(domain, tds, g, cache, manifest, null);
+  }
+
+  /**
+   * Creates a new {@link BBClientProxier}.
+   *
+   * @param domain a {@link Domain}; must not be {@code null}
+   *
+   * @param tds a {@link TypeDefinitions}; must not be {@code null}
+   *
+   * @param g a {@link BBClientProxyClassGenerator}; must not be {@code null}
+   *
+   * @param cache a {@link ClientProxyClassCache}; must not be {@code null}
+   *
+   * @param manifest a {@link ClientProxyManifest} in which every client proxy class this {@link BBClientProxier}
+   * generates will be {@linkplain ClientProxyManifest#record(ProxySpecification) recorded}; may be {@code null}
+   *
+   * @param hiddenClassLookups a {@link Function} that, given the class next to which a client proxy class must be
+   * defined, returns a {@link Lookup} with {@linkplain Lookup#hasFullPrivilegeAccess() full privilege access} whose
+   * {@linkplain Lookup#lookupClass() lookup class} is, or is in the same package as, that class (normally the class
+   * itself, as with a {@link MethodHandles#lookup()} call made within it); that class is the client proxy class'
+   * superclass, or, if its superclass is {@link Object}, the first of its interfaces that is in its package, so the
+   * {@link Function} must be prepared to be given interfaces as well as classes; client proxy classes that must be
+   * defined will be defined as {@linkplain Lookup#defineHiddenClass(byte[], boolean, Lookup.ClassOption...) hidden
+   * classes} that are {@linkplain Lookup.ClassOption#NESTMATE nestmates} of that lookup class; may be {@code null} in
+   * which case client proxy classes will be defined as ordinary classes
+   *
+   * @exception NullPointerException if {@code domain}, {@code tds}, {@code g} or {@code cache} is {@code null}
+   *
+   * @exception IllegalArgumentException if {@code g} generates client proxy classes {@linkplain
+   * BBClientProxyClassGenerator.Option#CONSTRUCTORLESS without constructors}
+   */
+  public BBClientProxier(final Domain domain,
+                         final TypeDefinitions tds,
+                         final BBClientProxyClassGenerator g,
+                         final ClientProxyClassCache cache,
+                         final ClientProxyManifest manifest,
+                         final Function<? super Class<?>, ? extends Lookup> hiddenClassLookups) {
     super(domain);
+    this.domain = Objects.requireNonNull(domain, "domain");
     this.tds = Objects.requireNonNull(tds, "tds");
-    this.g = Objects.requireNonNull(g, "g");
+    if (Objects.requireNonNull(g, "g").options().contains(BBClientProxyClassGenerator.Option.CONSTRUCTORLESS)) {
+      // AbstractClientProxier instantiates client proxies through the constructor such a generator omits.
+      throw new IllegalArgumentException("g: " + g + "; options: " + g.options());
+    }
+    this.g = g;
+    this.cache = Objects.requireNonNull(cache, "cache");
+    this.manifest = manifest;
+    this.inFlight = new ConcurrentHashMap<>();
+    this.hiddenClassLookups = hiddenClassLookups;
+    this.registry = new ClientProxyClassRegistry();
+  }
+
+  /**
+   * Returns a {@link ClientProxyClassDefinition} for the client proxy class described by the supplied {@link
+   * ProxySpecification}, retrieving it from this {@link BBClientProxier}'s {@link ClientProxyClassCache} or generating
+   * it as necessary.
+   *
+   * @param ps a {@link ProxySpecification}; must not be {@code null}
+   *
+   * @return a non-{@code null} {@link ClientProxyClassDefinition}
+   *
+   * @exception NullPointerException if {@code ps} is {@code null}
+   */
+  public final ClientProxyClassDefinition definition(final ProxySpecification ps) {
+    return this.definition(Spec.of(ps));
+  }
+
+  private final ClientProxyClassDefinition definition(final Spec s) {
+    final String fingerprint = this.fingerprint(s);
+    ClientProxyClassDefinition d = this.cache.get(fingerprint);
+    if (d == null) {
+      d = ClientProxyClassDefinition.of(this.g.generate(s.name(),
+                                                        this.tds.typeDescription(s.superclass()),
+                                                        s.interfaces().stream().map(this.tds::typeDescriptionGeneric).toList(),
+                                                        fingerprint));
+      this.cache.put(fingerprint, d);
+    }
+    return d;
+  }
+
+  private final String fingerprint(final Spec s) {
+    return Fingerprints.fingerprint(s.name(),
+                                    s.superclass(),
+                                    s.interfaces(),
+                                    this.g.configuration(),
+                                    !this.g.options().contains(COMPACT));
+  }
+
+  @Override // AbstractClientProxier<ProxySpecification>
+  protected final ProxySpecification generate(final ProxySpecification ps) {
+    // Deliberately deferred to clientProxyClass(ProxySpecification, ClassLoader), which may not need to generate
+    // anything at all.
+    return ps;
+  }
+
+  @Override // AbstractClientProxier<ProxySpecification>
+  protected final Class<?> clientProxyClass(final ProxySpecification ps, final ClassLoader cl)
+    throws ClassNotFoundException {
+    // If another thread is already loading or generating the client proxy class, wait for it to finish.
+    return join(this.flight(Spec.of(ps), cl));
+  }
+
+  private final Class<?> load(final Spec s, final ClassLoader cl) throws ClassNotFoundException {
+    final Class<?> c = this.loaded(s, cl);
+    return c == null ? this.define(s, this.definition(s), cl, null) : c;
+  }
+
+  /**
+   * Loads or generates and defines, in parallel using the supplied {@link Executor}, the client proxy classes described
+   * by the supplied {@link ProxySpecification}s, blocking until all of them have been processed, and returns a {@link
+   * Batch} describing the outcome.
+   *
+   * <p>{@link ProxySpecification}s with the same {@linkplain ProxySpecification#name() name} are processed only
+   * once. The failure to load or generate one client proxy class does not affect the others.</p>
+   *
+   * <p>The parallelism of batch generation is governed by the supplied {@link Executor}. Executors that run each task in
+   * a new virtual thread are suitable. The {@link TypeDefinitions} and {@link BBClientProxyClassGenerator} supplied at
+   * construction time are shared by all tasks and so must be safe for concurrent use, as are those backed by a {@link
+   * TypeElementTypePool} whose {@link Domain} is safe for concurrent use.</p>
+   *
+   * @param specs a {@link Collection} of {@link ProxySpecification}s; must not be {@code null}
+   *
+   * @param cl the {@link ClassLoader} from which superclasses will be loaded; must not be {@code null}
+   *
+   * @param executor an {@link Executor}; must not be {@code null}
+   *
+   * @return a non-{@code null} {@link Batch}
+   *
+   * @exception NullPointerException if any argument is {@code null}
+   */
+  public final Batch clientProxyClasses(final Collection<? extends ProxySpecification> specs,
+                                        final ClassLoader cl,
+                                        final Executor executor) {
+    return this.prewarm(specs, cl, executor).join();
+  }
+
+  /**
+   * Begins loading or generating and defining, in the background using the supplied {@link Executor}, the client
+   * proxy classes described by the supplied {@link ProxySpecification}s, and returns a {@link CompletableFuture} that
+   * will complete with a {@link Batch} describing the outcome once all of them have been processed.
+   *
+   * <p>This method does not block. Until a client proxy class being prewarmed has been processed, a request for it
+   * through {@link #clientProxyClass(ProxySpecification, ClassLoader)} with the same {@link ClassLoader} will wait for
+   * the prewarming work instead of duplicating it.</p>
+   *
+   * <p>{@link ProxySpecification}s with the same {@linkplain ProxySpecification#name() name} are processed only
+   * once. The failure to load or generate one client proxy class does not affect the others, and the returned {@link
+   * CompletableFuture} never completes exceptionally.</p>
+   *
+   * <p>Client proxy classes are generated in parallel, but are then defined in batches, one per package, each using a
+   * single {@link Lookup} per runtime package. Once all of them have been processed, the {@link
+   * BBClientProxyClassGenerator} supplied at construction time is {@linkplain BBClientProxyClassGenerator#release()
+   * told to release} the state it cached while generating them.</p>
+   *
+   * <p>The concurrency considerations described by the {@link #clientProxyClasses(Collection, ClassLoader, Executor)}
+   * method apply.</p>
+   *
+   * @param specs a {@link Collection} of {@link ProxySpecification}s; must not be {@code null}
+   *
+   * @param cl the {@link ClassLoader} from which superclasses will be loaded; must not be {@code null}
+   *
+   * @param executor an {@link Executor}; must not be {@code null}
+   *
+   * @return a non-{@code null} {@link CompletableFuture}
+   *
+   * @exception NullPointerException if any argument is {@code null}
+   *
+   * @see #clientProxyClasses(Collection, ClassLoader, Executor)
+   */
+  public final CompletableFuture<Batch> prewarm(final Collection<? extends ProxySpecification> specs,
+                                                final ClassLoader cl,
+                                                final Executor executor) {
+    Objects.requireNonNull(cl, "cl");
+    Objects.requireNonNull(executor, "executor");
+    return this.batch(specs.stream().map(Spec::of).toList(), cl, executor);
+  }
+
+  // Claims, loads or generates and defines the client proxy classes described by the supplied Specs, returning a
+  // CompletableFuture that never completes exceptionally.
+  private final CompletableFuture<Batch> batch(final Collection<? extends Spec> specs,
+                                               final ClassLoader cl,
+                                               final Executor executor) {
+    final Map<String, CompletableFuture<Class<?>>> futures = new LinkedHashMap<>();
+    final Map<String, List<Pending>> packages = new LinkedHashMap<>();
+    for (final Spec s : specs) {
+      final String name = s.name();
+      if (!futures.containsKey(name)) {
+        final CompletableFuture<Class<?>> f = new CompletableFuture<>();
+        final CompletableFuture<Class<?>> existing = this.claim(new InFlight(name, cl), f);
+        if (existing == null) {
+          packages.computeIfAbsent(packageName(name), x -> new ArrayList<>()).add(new Pending(s, f));
+          futures.put(name, f);
+        } else {
+          futures.put(name, existing);
+        }
+      }
+    }
+    for (final List<Pending> batch : packages.values()) {
+      this.define(batch, cl, executor);
+    }
+    return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0]))
+      .handle((v, t) -> {
+          this.g.release(); // the supertypes involved are unlikely to be needed again soon
+          final Map<String, Class<?>> classes = new LinkedHashMap<>();
+          final Map<String, Throwable> failures = new LinkedHashMap<>();
+          for (final Map.Entry<String, CompletableFuture<Class<?>>> e : futures.entrySet()) {
+            try {
+              classes.put(e.getKey(), e.getValue().join());
+            } catch (final CompletionException x) {
+              failures.put(e.getKey(), x.getCause());
+            }
+          }
+          return new Batch(classes, failures);
+        });
+  }
+
+  // Loads or generates, in parallel using the supplied Executor, the client proxy classes in the supplied batch, all of
+  // which are in the same package, and then defines those that need to be defined together, completing their
+  // CompletableFutures.
+  private final void define(final List<Pending> batch, final ClassLoader cl, final Executor executor) {
+    final List<CompletableFuture<ClientProxyClassDefinition>> definitions = new ArrayList<>(batch.size());
+    try {
+      for (final Pending p : batch) {
+        definitions.add(CompletableFuture.supplyAsync(() -> {
+              final Class<?> c = this.loaded(p.s(), cl);
+              if (c == null) {
+                return this.definition(p.s());
+              }
+              p.f().complete(c);
+              return null; // nothing to define
+            }, executor));
+      }
+      CompletableFuture.allOf(definitions.toArray(new CompletableFuture<?>[0]))
+        .whenCompleteAsync((v, t) -> {
+            final Map<Package, Lookup> lookups = new HashMap<>();
+            for (int i = 0; i < definitions.size(); i++) {
+              final Pending p = batch.get(i);
+              try {
+                final ClientProxyClassDefinition d = definitions.get(i).join();
+                if (d != null) {
+                  p.f().complete(this.define(p.s(), d, cl, lookups));
+                }
+              } catch (final CompletionException e) {
+                p.f().completeExceptionally(e.getCause());
+              } catch (final ClassNotFoundException | LinkageError | RuntimeException e) {
+                p.f().completeExceptionally(e);
+              }
+            }
+          }, executor)
+        .exceptionally(t -> {
+            fail(batch, t);
+            return null;
+          });
+    } catch (final RejectedExecutionException e) {
+      fail(batch, e);
+    }
+  }
+
+  // Returns a CompletableFuture representing the loading or generation of the client proxy class described by s,
+  // performing that loading or generation on the current thread unless another thread is already doing so.
+  private final CompletableFuture<Class<?>> flight(final Spec s, final ClassLoader cl) {
+    final CompletableFuture<Class<?>> f = new CompletableFuture<>();
+    final CompletableFuture<Class<?>> existing = this.claim(new InFlight(s.name(), cl), f);
+    if (existing != null) {
+      return existing;
+    }
+    this.complete(f, s, cl);
+    return f;
+  }
+
+  // Records that the supplied CompletableFuture, which the caller must complete, represents the loading or generation of
+  // the client proxy class described by the supplied InFlight, and returns null, unless another CompletableFuture
+  // already represents it, in which case that CompletableFuture is returned instead.
+  private final CompletableFuture<Class<?>> claim(final InFlight key, final CompletableFuture<Class<?>> f) {
+    final CompletableFuture<Class<?>> existing = this.inFlight.putIfAbsent(key, f);
+    if (existing == null) {
+      f.whenComplete((c, t) -> this.inFlight.remove(key, f));
+    }
+    return existing;
+  }
+
+  private final void complete(final CompletableFuture<Class<?>> f, final Spec s, final ClassLoader cl) {
+    try {
+      f.complete(this.load(s, cl));
+    } catch (final ClassNotFoundException | LinkageError | RuntimeException e) {
+      f.completeExceptionally(e);
+    }
+  }
+
+  /**
+   * Loads or generates and defines, in parallel using the supplied {@link Executor}, every client proxy class listed in
+   * the supplied {@link ClientProxyManifest}, blocking until all of them have been processed, and returns a {@link
+   * List} of the resulting {@link Class}es.
+   *
+   * <p>Preloading is best effort: a client proxy class that cannot be loaded or generated, for example because its
+   * superclass no longer exists, is logged and omitted from the returned {@link List}.</p>
+   *
+   * <p>Client proxy classes are preloaded exactly as they are {@linkplain #prewarm(Collection, ClassLoader, Executor)
+   * prewarmed}. In particular, a client proxy class listed in the manifest has the same fingerprint, and so the same
+   * {@linkplain #definition(ProxySpecification) definition}, as it did when it was recorded, and a request for it
+   * through {@link #clientProxyClass(ProxySpecification, ClassLoader)} while it is being preloaded waits for the
+   * preloading work instead of duplicating it.</p>
+   *
+   * <p>The parallelism of preloading is governed by the supplied {@link Executor}, which should normally be bounded.</p>
+   *
+   * <p>Once preloading is complete, the {@link BBClientProxyClassGenerator} supplied at construction time is {@linkplain
+   * BBClientProxyClassGenerator#release() told to release} the state it cached while generating client proxy
+   * classes.</p>
+   *
+   * @param manifest a {@link ClientProxyManifest}, normally {@linkplain ClientProxyManifest#read(Path) read} from a
+   * file written by a previous run; must not be {@code null}
+   *
+   * @param cl the {@link ClassLoader} from which superclasses will be loaded; must not be {@code null}
+   *
+   * @param executor an {@link Executor}; must not be {@code null}
+   *
+   * @return a non-{@code null}, unmodifiable {@link List} of client proxy classes
+   *
+   * @exception NullPointerException if any argument is {@code null}
+   */
+  public final List<Class<?>> preload(final ClientProxyManifest manifest, final ClassLoader cl, final Executor executor) {
+    Objects.requireNonNull(cl, "cl");
+    Objects.requireNonNull(executor, "executor");
+    final List<Spec> specs = new ArrayList<>(manifest.size());
+    for (final ClientProxyManifest.Entry e : manifest.entries()) {
+      try {
+        specs.add(this.spec(e));
+      } catch (final IllegalArgumentException x) {
+        LOGGER.log(WARNING, "Could not preload " + e.name(), x);
+      }
+    }
+    final Batch b = this.batch(specs, cl, executor).join(); // releases this.g
+    for (final Map.Entry<String, Throwable> e : b.failures().entrySet()) {
+      LOGGER.log(WARNING, "Could not preload " + e.getKey(), e.getValue());
+    }
+    final List<Class<?>> classes = new ArrayList<>(b.classes().size());
+    for (final Spec s : specs) {
+      final Class<?> c = b.classes().get(s.name());
+      if (c != null) {
+        classes.add(c);
+      }
+    }
+    return Collections.unmodifiableList(classes);
   }
 
-  @Override // AbstractClientProxier<DynamicType.Unloaded<?>>
-  protected final DynamicType.Unloaded<?> generate(final ProxySpecification ps) {
-    return
-      this.g.generate(ps.name(),
-                      this.tds.typeDescription(ps.superclass()),
-                      ps.interfaces().stream().map(this.tds::typeDescriptionGeneric).toList());
+  /**
+   * Returns the number of client proxy classes this {@link BBClientProxier} has loaded or defined that are still
+   * loaded.
+   *
+   * @return the number of client proxy classes this {@link BBClientProxier} has loaded or defined that are still
+   * loaded; always {@code 0} or greater
+   *
+   * @see #clientProxyClassCount(ClassLoader)
+   */
+  public final int clientProxyClassCount() {
+    return this.registry.size();
   }
 
-  @Override // AbstractClientProxier<DynamicType.Unloaded<?>>
-  protected final Class<?> clientProxyClass(final DynamicType.Unloaded<?> dtu, final ClassLoader cl)
+  /**
+   * Returns the number of client proxy classes this {@link BBClientProxier} has loaded or defined on behalf of the
+   * supplied {@link ClassLoader} that are still loaded.
+   *
+   * @param cl a {@link ClassLoader}; may be {@code null}
+   *
+   * @return the number of client proxy classes this {@link BBClientProxier} has loaded or defined on behalf of the
+   * supplied {@link ClassLoader} that are still loaded; always {@code 0} or greater
+   *
+   * @see #clientProxyClassCount()
+   */
+  public final int clientProxyClassCount(final ClassLoader cl) {
+    return this.registry.size(cl);
+  }
+
+  // Returns a Spec for the client proxy class described by the supplied manifest Entry.
+  private final Spec spec(final ClientProxyManifest.Entry e) {
+    final TypeMirror superclass = ClientProxyManifest.typeMirror(e.superclass(), this.domain, null);
+    final TypeElement context = (TypeElement)((DeclaredType)superclass).asElement();
+    final List<TypeMirror> interfaces = new ArrayList<>(e.interfaces().size());
+    for (final String i : e.interfaces()) {
+      interfaces.add(ClientProxyManifest.typeMirror(i, this.domain, context));
+    }
+    return new Spec(e.name(), superclass, interfaces);
+  }
+
+  // Returns the client proxy class described by the supplied Spec that was generated ahead of time or already defined,
+  // or null if there is no such class or if the one generated ahead of time is stale.
+  private final Class<?> loaded(final Spec s, final ClassLoader cl) {
+    final String name = s.name();
+    Class<?> c = this.registry.get(cl, name);
+    if (c == null) {
+      if (this.stale(s, cl)) {
+        return null;
+      }
+      try {
+        c = Class.forName(name, false, cl);
+      } catch (final ClassNotFoundException e) {
+        return null;
+      }
+      this.registry.put(cl, name, c);
+    }
+    return c;
+  }
+
+  // Returns true if the supplied ClassLoader would load the client proxy class described by the supplied Spec from a
+  // class file generated ahead of time for a different fingerprint (for example, from a superclass that has since
+  // changed, by another version of BBClientProxyClassGenerator, or with other Options), or for none, in which case a
+  // fresh client proxy class should be defined in its place. The class file is inspected without loading it, since once
+  // loaded it could not be replaced.
+  private final boolean stale(final Spec s, final ClassLoader cl) {
+    if (cl == null) {
+      return false;
+    }
+    final byte[] classFile;
+    try (final InputStream is = cl.getResourceAsStream(s.name().replace('.', '/') + ".class")) {
+      if (is == null) {
+        // Either there is no such class, or it was defined at run time (perhaps by another BBClientProxier).
+        return false;
+      }
+      classFile = is.readAllBytes();
+    } catch (final IOException e) {
+      LOGGER.log(WARNING, "Could not read the class file of " + s.name(), e);
+      return true;
+    }
+    try {
+      return !this.fingerprint(s).equals(Fingerprints.recorded(classFile));
+    } catch (final IllegalArgumentException e) {
+      LOGGER.log(WARNING, "Malformed class file for " + s.name(), e);
+      return true;
+    }
+  }
+
+  // Defines and registers the client proxy class described by the supplied ClientProxyClassDefinition, recording it in
+  // the manifest, if there is one, under the supplied Spec. Lookups used to define client proxy classes are cached by
+  // runtime package in the supplied Map, if it is not null.
+  private final Class<?> define(final Spec s,
+                                final ClientProxyClassDefinition d,
+                                final ClassLoader cl,
+                                final Map<Package, Lookup> lookups)
+    throws ClassNotFoundException {
+    final Class<?> c = this.define(d, cl, lookups);
+    this.registry.put(cl, d.name(), c);
+    if (this.manifest != null) {
+      this.manifest.record(s.name(), s.superclass(), s.interfaces());
+    }
+    return c;
+  }
+
+  private final Class<?> define(final ClientProxyClassDefinition d,
+                                final ClassLoader cl,
+                                final Map<Package, Lookup> lookups)
     throws ClassNotFoundException {
-    // getTypeName() invoked on a TypeDescription will be its binary name (required by Class#forName(String)):
-    // https://javadoc.io/static/net.bytebuddy/byte-buddy/1.17.3/net/bytebuddy/description/type/TypeDefinition.html#getTypeName--
-    final String binaryName = dtu.getTypeDescription().getSuperClass().asErasure().getTypeName();
-    final Class<?> superclass = Class.forName(binaryName, false, cl);
-    return dtu.load(superclass.getClassLoader(), ClassLoadingStrategy.UsingLookup.of(lookup(superclass))).getLoaded();
+    final Class<?> host = host(d, cl);
+    // The client proxy class will be defined in the host's runtime package (package name and defining ClassLoader),
+    // which Class#getPackage() identifies.
+    final Lookup l = lookups == null ?
+      this.definingLookup(host) :
+      lookups.computeIfAbsent(host.getPackage(), p -> this.definingLookup(host));
+    if (this.hiddenClassLookups != null) {
+      try {
+        return l.defineHiddenClass(d.bytes(), true, NESTMATE).lookupClass();
+      } catch (final IllegalAccessException e) {
+        throw new IllegalStateException(e.getMessage(), e);
+      }
+    }
+    try {
+      // This is exactly what ClassLoadingStrategy.UsingLookup does, minus Byte Buddy.
+      return l.defineClass(d.bytes());
+    } catch (final IllegalAccessException e) {
+      throw new IllegalStateException(e.getMessage(), e);
+    } catch (final LinkageError e) {
+      if (e.getClass() != LinkageError.class) {
+        // VerifyError, ClassFormatError and the like: the class file, not its name, is the problem.
+        throw e;
+      }
+      // Most likely a duplicate class definition, because something other than this BBClientProxier (another
+      // BBClientProxier, for example) defined the class first. If so, use it, but only if it is the class this
+      // BBClientProxier would have defined, and not, say, a stale one generated ahead of time.
+      final Class<?> c;
+      try {
+        c = Class.forName(d.name(), false, host.getClassLoader());
+      } catch (final ClassNotFoundException x) {
+        e.addSuppressed(x);
+        throw e;
+      }
+      final String expected = Fingerprints.recorded(d.bytes());
+      final String actual = recorded(l, c);
+      if (!Objects.equals(expected, actual)) {
+        throw new LinkageError("A different " + d.name() + " is already defined; expected fingerprint: " + expected +
+                               "; actual fingerprint: " + actual, e);
+      }
+      return c;
+    }
+  }
+
+  // Returns a Lookup suitable for defining a client proxy class in the runtime package of the supplied host.
+  private final Lookup definingLookup(final Class<?> host) {
+    return this.hiddenClassLookups == null ? this.lookup(host) : this.hiddenClassLookups.apply(host);
   }
 
-  @Override // AbstractClientProxier<DynamicType.Unloaded<?>>
+  @Override // AbstractClientProxier<ProxySpecification>
   protected final Lookup lookup(final Class<?> c) {
-    return lookup.in(c);
+    return lookups.get(c);
+  }
+
+
+  /*
+   * Static methods.
+   */
+
+
+  private static final void fail(final Collection<? extends Pending> batch, final Throwable t) {
+    for (final Pending p : batch) {
+      p.f().completeExceptionally(t); // no effect if already completed
+    }
+  }
+
+  // Returns the class in whose runtime package the client proxy class described by the supplied
+  // ClientProxyClassDefinition must be defined: its superclass, or, if its superclass is Object, and so it implements
+  // only interfaces, the first of those interfaces in its package. Package-private for testing.
+  static final Class<?> host(final ClientProxyClassDefinition d, final ClassLoader cl)
+    throws ClassNotFoundException {
+    final Class<?> superclass = Class.forName(d.superclassName(), false, cl);
+    if (superclass != Object.class) {
+      return superclass;
+    }
+    final String packageName = packageName(d.name());
+    for (final String i : new ClassReader(d.bytes()).getInterfaces()) { // internal names
+      final String name = i.replace('/', '.');
+      if (packageName(name).equals(packageName)) {
+        return Class.forName(name, false, cl);
+      }
+    }
+    throw new IllegalStateException("No interface of " + d.name() + " is in package " + packageName);
+  }
+
+  // Returns the structural fingerprint recorded in the supplied client proxy class, or null if there is none, or if the
+  // supplied Lookup cannot read it.
+  private static final String recorded(final Lookup l, final Class<?> c) {
+    try {
+      return (String)l.findStaticVarHandle(c, "$fingerprint", String.class).get();
+    } catch (final IllegalAccessException | NoSuchFieldException e) {
+      return null;
+    }
+  }
+
+  private static final String packageName(final String binaryName) {
+    final int lastDot = binaryName.lastIndexOf('.');
+    return lastDot < 0 ? "" : binaryName.substring(0, lastDot);
+  }
+
+  private static final Class<?> join(final CompletableFuture<Class<?>> f) throws ClassNotFoundException {
+    try {
+      return f.join(); // parks rather than pins virtual threads
+    } catch (final CompletionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof ClassNotFoundException cnfe) {
+        throw cnfe;
+      } else if (cause instanceof RuntimeException re) {
+        throw re;
+      } else if (cause instanceof Error error) {
+        throw error;
+      }
+      throw e;
+    }
+  }
+
+
+  /*
+   * Inner and nested classes.
+   */
+
+
+  private static final record InFlight(String name, ClassLoader cl) {}
+
+  // A client proxy class that the current thread has claimed to load or generate as part of a batch.
+  private static final record Pending(Spec s, CompletableFuture<Class<?>> f) {}
+
+  // What a fingerprint, and so a client proxy class, is computed from, whether it comes from a ProxySpecification or a
+  // ClientProxyManifest.Entry.
+  private static final record Spec(String name, TypeMirror superclass, List<? extends TypeMirror> interfaces) {
+
+    private static final Spec of(final ProxySpecification ps) {
+      return new Spec(ps.name(), ps.superclass(), ps.interfaces());
+    }
+
+  }
+
+  /**
+   * The outcome of {@linkplain BBClientProxier#clientProxyClasses(Collection, ClassLoader, Executor) loading or
+   * generating a batch} of client proxy classes.
+   *
+   * @param classes an immutable {@link Map} of client proxy classes indexed by {@linkplain ProxySpecification#name()
+   * name}; must not be {@code null}
+   *
+   * @param failures an immutable {@link Map} of the {@link Throwable}s that prevented client proxy classes from being
+   * loaded or generated, indexed by {@linkplain ProxySpecification#name() name}; must not be {@code null}
+   *
+   * @author <a href="https://about.me/lairdnelson" target="_top">Laird Nelson</a>
+   */
+  public record Batch(Map<String, Class<?>> classes, Map<String, Throwable> failures) {
+
+    /**
+     * Creates a new {@link Batch}.
+     *
+     * @param classes a {@link Map} of client proxy classes indexed by {@linkplain ProxySpecification#name() name}; must
+     * not be {@code null}
+     *
+     * @param failures a {@link Map} of the {@link Throwable}s that prevented client proxy classes from being loaded or
+     * generated, indexed by {@linkplain ProxySpecification#name() name}; must not be {@code null}
+     *
+     * @exception NullPointerException if any argument is {@code null}
+     */
+    public Batch {
+      classes = Map.copyOf(classes);
+      failures = Map.copyOf(failures);
+    }
+
   }
 
 }
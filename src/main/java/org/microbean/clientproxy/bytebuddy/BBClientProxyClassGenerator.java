@@ -13,11 +13,39 @@
  */
 package org.microbean.clientproxy.bytebuddy;
 
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import java.lang.invoke.ConstantBootstraps;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+import java.lang.ref.SoftReference;
+
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import java.util.stream.Collectors;
+
+import java.util.function.Supplier;
 
 import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.ClassFileVersion;
+
+import net.bytebuddy.asm.Advice;
+import net.bytebuddy.asm.AsmVisitorWrapper;
+
+import net.bytebuddy.description.annotation.AnnotationDescription;
 
 import net.bytebuddy.description.method.MethodDescription;
 import net.bytebuddy.description.method.ParameterDescription;
@@ -31,19 +59,37 @@ import net.bytebuddy.description.type.TypeDefinition;
 import net.bytebuddy.description.type.TypeDescription;
 
 import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.dynamic.VisibilityBridgeStrategy;
+
+import net.bytebuddy.dynamic.scaffold.InstrumentedType;
+import net.bytebuddy.dynamic.scaffold.MethodGraph;
+import net.bytebuddy.dynamic.scaffold.TypeValidation;
 
 import net.bytebuddy.implementation.DefaultMethodCall;
-import net.bytebuddy.implementation.HashCodeMethod;
-import net.bytebuddy.implementation.EqualsMethod;
 import net.bytebuddy.implementation.FieldAccessor;
+import net.bytebuddy.implementation.Implementation;
+import net.bytebuddy.implementation.InvokeDynamic;
 import net.bytebuddy.implementation.MethodCall;
 
+import net.bytebuddy.implementation.bytecode.ByteCodeAppender;
+
 import net.bytebuddy.implementation.bytecode.assign.Assigner;
 
+import net.bytebuddy.implementation.bytecode.constant.JavaConstantValue;
+
+import net.bytebuddy.jar.asm.ConstantDynamic;
+import net.bytebuddy.jar.asm.Handle;
+import net.bytebuddy.jar.asm.Label;
+import net.bytebuddy.jar.asm.MethodVisitor;
+import net.bytebuddy.jar.asm.Opcodes;
+import net.bytebuddy.jar.asm.Type;
+
 import net.bytebuddy.matcher.ElementMatcher;
 
 import net.bytebuddy.pool.TypePool;
 
+import net.bytebuddy.utility.JavaConstant;
+
 import static net.bytebuddy.description.modifier.Ownership.STATIC;
 import static net.bytebuddy.description.modifier.SyntheticState.SYNTHETIC;
 import static net.bytebuddy.description.modifier.Visibility.PRIVATE;
@@ -57,7 +103,7 @@ import static net.bytebuddy.dynamic.scaffold.subclass.ConstructorStrategy.Defaul
 import static net.bytebuddy.implementation.MethodCall.invoke;
 import static net.bytebuddy.implementation.MethodCall.invokeSelf;
 
-import static net.bytebuddy.matcher.ElementMatchers.any;
+import static net.bytebuddy.matcher.ElementMatchers.cached;
 import static net.bytebuddy.matcher.ElementMatchers.hasParameters;
 import static net.bytebuddy.matcher.ElementMatchers.isConstructor;
 import static net.bytebuddy.matcher.ElementMatchers.isDeclaredBy;
@@ -83,20 +129,150 @@ import static net.bytebuddy.matcher.ElementMatchers.takesNoArguments;
  */
 public final class BBClientProxyClassGenerator {
 
+
+  /*
+   * Static fields.
+   */
+
+
+  // Increment whenever a change to this class changes the class files it generates. Package-private for
+  // ClientProxyClassDirectory.
+  static final int VERSION = 7;
+
+  // Matches methods that a client proxy class delegates to its contextual reference.
+  private static final ElementMatcher<MethodDescription> DELEGATED_METHODS =
+    isBusinessMethod()
+    .and(not(isJavaDeclaredMethod()
+             .and(isPackagePrivate()
+                  .or(hasOnePackagePrivateParameter()))));
+
+  // Finds $proxied() among the methods declared by the client proxy class, rather than by compiling its entire method
+  // graph, which, for a client proxy class of a wide superclass, would be compiled once per delegated method.
+  private static final MethodCall PROXIED =
+    invoke(named("$proxied"), MethodGraph.Compiler.ForDeclaredMethods.INSTANCE);
+
+  private static final Implementation DELEGATION =
+    invokeSelf()
+    .onMethodCall(PROXIED)
+    .withAllArguments();
+
+  // When the superclass is Object, $proxied() returns Object, which must be cast to the interface declaring the method.
+  private static final Implementation INTERFACE_DELEGATION =
+    invokeSelf()
+    .onMethodCall(PROXIED)
+    .withAllArguments()
+    .withAssigner(Assigner.DEFAULT, Assigner.Typing.DYNAMIC);
+
+  private static final Implementation HASH_CODE = FieldAccessor.ofField("$hashCode");
+
+  private static final Implementation TO_STRING =
+    invoke(named("toString"))
+    .onMethodCall(PROXIED);
+
+  private static final AsmVisitorWrapper COMPACTION = new CompactingAsmVisitorWrapper();
+
+
+  /*
+   * Instance fields.
+   */
+
+
   private final TypePool typePool;
 
+  private final Set<Option> options;
+
+  // The following are immutable, depend only on the TypePool and the Options, and so are computed once.
+
+  private final ByteBuddy byteBuddy; // see caches()
+
+  private final TypeDescription clientProxy; // ClientProxy
+
+  private final TypeDescription supplier; // Supplier
+
+  private final MethodDescription requireNonNull; // Objects.requireNonNull(Object, String)
+
+  private final MethodDescription identityHashCode; // System.identityHashCode(Object)
+
+  private final Implementation proxied; // the body of $proxied()
+
+  private final Implementation acquireProxied; // the body of $acquireProxied(), or null if there is none
+
+  private final Advice instrumentation; // wraps instrumented methods, or null unless Option.INSTRUMENTED
+
+  // Caches that speed up the generation of client proxy classes with common supertypes, but that retain descriptions
+  // of those supertypes. They are softly reachable so that they may be reclaimed under memory pressure, and may be
+  // released explicitly. Nullable.
+  private volatile SoftReference<Caches> caches;
+
+
+  /*
+   * Constructors.
+   */
+
+
   /**
    * Creates a new {@link BBClientProxyClassGenerator}.
    *
    * @param typePool a {@link TypePool} (normally a {@link TypeElementTypePool}); must not be {@code null}
    *
-   * @exception NullPointerException if {@code typePool} is {@code null}
+   * @param options {@link Option}s governing the class files this {@link BBClientProxyClassGenerator} will {@linkplain
+   * #generate(String, TypeDefinition, Collection) generate}; must not be {@code null}
+   *
+   * @exception NullPointerException if any argument is {@code null}
+   *
+   * @exception IllegalArgumentException if {@code options} contains both {@link Option#STABLE} and {@link
+   * Option#PER_THREAD}
    */
-  public BBClientProxyClassGenerator(final TypePool typePool) {
+  public BBClientProxyClassGenerator(final TypePool typePool, final Option... options) {
     super();
     this.typePool = Objects.requireNonNull(typePool, "typePool");
+    final EnumSet<Option> os = EnumSet.noneOf(Option.class);
+    for (final Option o : options) {
+      os.add(Objects.requireNonNull(o, "option"));
+    }
+    if (os.contains(Option.STABLE) && os.contains(Option.PER_THREAD)) {
+      throw new IllegalArgumentException("options: " + os);
+    }
+    this.options = Set.copyOf(os);
+    this.byteBuddy = os.contains(Option.FAST) ?
+      new ByteBuddy()
+      .with(TypeValidation.DISABLED)
+      .with(VisibilityBridgeStrategy.Default.NEVER)
+      .with(Implementation.Context.Disabled.Factory.INSTANCE) :
+      new ByteBuddy();
+    this.clientProxy = this.typeDescription("org.microbean.reference.ClientProxy");
+    this.supplier = this.typeDescription("java.util.function.Supplier");
+    this.requireNonNull = this.typeDescription("java.util.Objects")
+      .getDeclaredMethods()
+      .filter(named("requireNonNull")
+              .and(takesArgument(1, this.typeDescription("java.lang.String"))))
+      .getOnly();
+    this.identityHashCode = this.typeDescription("java.lang.System")
+      .getDeclaredMethods()
+      .filter(named("identityHashCode"))
+      .getOnly();
+    if (os.contains(Option.STABLE) || os.contains(Option.PER_THREAD)) {
+      // Acquiring and caching the contextual reference makes $proxied() too large for HotSpot to inline at any but the
+      // hottest call sites (more than -XX:MaxInlineSize bytes), so $proxied() keeps only the fast path and calls
+      // $acquireProxied() for the rest.
+      this.proxied = os.contains(Option.STABLE) ? ProxiedFastPath.STABLE : ProxiedFastPath.PER_THREAD;
+      this.acquireProxied = this.proxied();
+    } else {
+      this.proxied = this.proxied();
+      this.acquireProxied = null;
+    }
+    this.instrumentation =
+      os.contains(Option.INSTRUMENTED) ?
+      Advice.withCustomMapping().bind(MethodMetricsMapping.INSTANCE).to(InstrumentedAdvice.class) :
+      null;
   }
 
+
+  /*
+   * Instance methods.
+   */
+
+
   /**
    * Creates and returns a new {@link DynamicType.Unloaded} representing a client proxy class.
    *
@@ -104,7 +280,9 @@ public final class BBClientProxyClassGenerator {
    * href="https://docs.oracle.com/en/java/javase/24/docs/api/java.base/java/lang/ClassLoader.html#binary-name">binary
    * name</a>
    *
-   * @param superclass a {@link TypeDefinition} representing a superclass; must not be {@code null}
+   * @param superclass a {@link TypeDefinition} representing a superclass; must not be {@code null}; may represent
+   * {@link Object}, in which case the client proxy class will carry no state but its own and will delegate only the
+   * methods of its interfaces
    *
    * @param interfaces a {@link Collection} of {@link TypeDefinition}s representing interfaces the client proxy class
    * will implement; must not be {@code null}
@@ -112,66 +290,131 @@ public final class BBClientProxyClassGenerator {
    * @return a new, non-{@code null} {@link DynamicType.Unloaded} representing a client proxy class
    *
    * @exception NullPointerException if any argument is {@code null}
+   *
+   * @see #generate(String, TypeDefinition, Collection, String)
    */
   public final DynamicType.Unloaded<?> generate(final String name,
                                                 final TypeDefinition superclass,
                                                 final Collection<? extends TypeDefinition> interfaces) {
+    return this.generate(name, superclass, interfaces, null);
+  }
+
+  /**
+   * Creates and returns a new {@link DynamicType.Unloaded} representing a client proxy class that records the supplied
+   * structural fingerprint.
+   *
+   * <p>The fingerprint, if there is one, is the value of a {@code public static final} {@link String} field named
+   * {@code $fingerprint}. {@link BBClientProxier} uses it to tell whether a client proxy class generated ahead of time
+   * is still the one it would generate.</p>
+   *
+   * @param name the name of the client proxy class; must not be {@code null}; must be a valid Java class <a
+   * href="https://docs.oracle.com/en/java/javase/24/docs/api/java.base/java/lang/ClassLoader.html#binary-name">binary
+   * name</a>
+   *
+   * @param superclass a {@link TypeDefinition} representing a superclass; must not be {@code null}; may represent
+   * {@link Object}, in which case the client proxy class will carry no state but its own and will delegate only the
+   * methods of its interfaces
+   *
+   * @param interfaces a {@link Collection} of {@link TypeDefinition}s representing interfaces the client proxy class
+   * will implement; must not be {@code null}
+   *
+   * @param fingerprint the structural fingerprint of the client proxy class; may be {@code null} in which case none
+   * will be recorded
+   *
+   * @return a new, non-{@code null} {@link DynamicType.Unloaded} representing a client proxy class
+   *
+   * @exception NullPointerException if {@code name}, {@code superclass} or {@code interfaces} is {@code null}
+   *
+   * @see #generate(String, TypeDefinition, Collection)
+   */
+  public final DynamicType.Unloaded<?> generate(final String name,
+                                                final TypeDefinition superclass,
+                                                final Collection<? extends TypeDefinition> interfaces,
+                                                final String fingerprint) {
 
     // ClientProxy<Superclass>
     final TypeDescription.Generic clientProxyType =
-      parameterizedType(this.typeDescription("org.microbean.reference.ClientProxy"),
+      parameterizedType(this.clientProxy,
                         List.of(superclass))
       .build();
 
     // Supplier<? extends Superclass>
     final TypeDescription.Generic supplierType =
-      parameterizedType(this.typeDescription("java.util.function.Supplier"),
+      parameterizedType(this.supplier,
                         List.of(TypeDescription.Generic.Builder.of(superclass.asGenericType()).asWildcardUpperBound()))
       .build();
 
+    final Caches caches = this.caches();
+
     // public final class Name extends Superclass implements ClientProxy<Superclass>, Interfaces { /* ... */ }
-    DynamicType.Builder<?> builder = new ByteBuddy()
+    DynamicType.Builder<?> builder = caches.byteBuddy()
       .subclass(superclass, NO_CONSTRUCTORS)
       .merge(List.of(PUBLIC, SYNTHETIC, TypeManifestation.FINAL))
       .name(name)
       .implement(clientProxyType)
-      .implement(interfaces)
+      .implement(interfaces);
 
-      // private final Supplier<? extends Superclass> $proxiedSupplier;
-      .defineField("$proxiedSupplier", supplierType, PRIVATE, SYNTHETIC, FieldManifestation.FINAL)
+    if (fingerprint != null) {
+      // public static final String $fingerprint = "...";
+      builder = builder
+        .defineField("$fingerprint", String.class, PUBLIC, STATIC, SYNTHETIC, FieldManifestation.FINAL)
+        .value(fingerprint);
+    }
 
-      // public Name(final Supplier<? extends Superclass> proxiedSupplier) {
-      //   super();
-      //   Objects.requireNonNull(proxiedSupplier, "proxiedSupplier");
-      //   this.$proxiedSupplier = proxiedSupplier;
-      // }
-      .defineConstructor(PUBLIC, SYNTHETIC)
-      .withParameter(supplierType, "proxiedSupplier", ParameterManifestation.FINAL)
-      .intercept(invoke(superclass.getDeclaredMethods().filter(isConstructor().and(takesNoArguments())).getOnly())
-                 .andThen(invoke(this.typeDescription("java.util.Objects")
-                                 .getDeclaredMethods()
-                                 .filter(named("requireNonNull")
-                                         .and(takesArgument(1, this.typeDescription("java.lang.String"))))
-                                 .getOnly())
-                          .withArgument(0)
-                          .with("proxiedSupplier"))
-                 .andThen(FieldAccessor.ofField("$proxiedSupplier").setsArgumentAt(0)))
+    if (this.options.contains(Option.CONSTRUCTORLESS)) {
+      builder = builder
+        // private volatile Supplier<? extends Superclass> $proxiedSupplier;
+        .defineField("$proxiedSupplier", supplierType, PRIVATE, SYNTHETIC, FieldManifestation.VOLATILE)
+
+        // public final void $proxiedSupplier(final Supplier<? extends Superclass> proxiedSupplier) {
+        //   Objects.requireNonNull(proxiedSupplier, "proxiedSupplier");
+        //   if (!$PROXIED_SUPPLIER.compareAndSet(this, null, proxiedSupplier)) { // see ProxiedSupplierSetter
+        //     throw new IllegalStateException();
+        //   }
+        // }
+        .defineMethod("$proxiedSupplier", void.class, PUBLIC, SYNTHETIC, MethodManifestation.FINAL)
+        .withParameter(supplierType, "proxiedSupplier", ParameterManifestation.FINAL)
+        .intercept(ProxiedSupplierSetter.INSTANCE);
+    } else {
+      builder = builder
+        // private final Supplier<? extends Superclass> $proxiedSupplier;
+        .defineField("$proxiedSupplier", supplierType, PRIVATE, SYNTHETIC, FieldManifestation.FINAL)
 
+        // private final int $hashCode;
+        .defineField("$hashCode", int.class, PRIVATE, SYNTHETIC, FieldManifestation.FINAL)
+
+        // public Name(final Supplier<? extends Superclass> proxiedSupplier) {
+        //   super();
+        //   Objects.requireNonNull(proxiedSupplier, "proxiedSupplier");
+        //   this.$hashCode = System.identityHashCode(proxiedSupplier);
+        //   this.$proxiedSupplier = proxiedSupplier;
+        // }
+        .defineConstructor(PUBLIC, SYNTHETIC)
+        .withParameter(supplierType, "proxiedSupplier", ParameterManifestation.FINAL)
+        .intercept(invoke(superclass.getDeclaredMethods().filter(isConstructor().and(takesNoArguments())).getOnly())
+                   .andThen(invoke(this.requireNonNull)
+                            .withArgument(0)
+                            .with("proxiedSupplier"))
+                   .andThen(invoke(this.identityHashCode)
+                            .withArgument(0)
+                            .setsField(named("$hashCode")))
+                   .andThen(FieldAccessor.ofField("$proxiedSupplier").setsArgumentAt(0)));
+    }
+
+    builder = builder
       // @Override // ClientProxy<Superclass>
       // public final Superclass $proxied() {
-      //   return this.$proxiedSupplier.get();
+      //   return this.$proxiedSupplier.get(); // or see ProxiedFastPath
       // }
       .defineMethod("$proxied", superclass, PUBLIC, SYNTHETIC, MethodManifestation.FINAL)
-      .intercept(invoke(named("get"))
-                 .onField("$proxiedSupplier")
-                 .withAssigner(Assigner.DEFAULT, Assigner.Typing.DYNAMIC))
+      .intercept(this.instrumented(this.proxied))
 
       // @Override // ClientProxy<Superclass>
       // public final Superclass $cast() {
       //   return ClientProxy.super.$cast();
       // }
       .defineMethod("$cast", superclass, PUBLIC, SYNTHETIC, MethodManifestation.FINAL)
-      .intercept(DefaultMethodCall.prioritize(clientProxyType.asErasure()))
+      .intercept(DefaultMethodCall.prioritize(this.clientProxy))
 
       // Existing/inherited methods; remember that they form a stack, so the last .method() call below should be the
       // most specific. See https://bytebuddy.net/#members for details.
@@ -180,57 +423,206 @@ public final class BBClientProxyClassGenerator {
       // public Bar foo() {
       //   return $proxied().foo(); // so long as foo() meets certain requirements
       // }
-      .method(isBusinessMethod()
-              .and(not(isJavaDeclaredMethod()
-                       .and(isPackagePrivate()
-                            .or(hasOnePackagePrivateParameter())))))
-      .intercept(invokeSelf()
-                 .onMethodCall(invoke(named("$proxied")))
-                 .withAllArguments())
+      .method(this.options.contains(Option.SELECTIVE) ?
+              clientVisible(caches.delegatedMethods(), superclass, interfaces) :
+              caches.delegatedMethods())
+      .intercept(this.instrumented(superclass.represents(Object.class) ? INTERFACE_DELEGATION : DELEGATION))
 
       // @Override // Superclass, Object
-      // public final boolean equals(final Object other) {
-      //   if (other == this) {
-      //     return true;
-      //   } else if (other != null && other.getClass() == this.getClass()) {
-      //     return this.$proxiedSupplier == ((Name)other).$proxiedSupplier;
-      //   } else {
-      //     return false;
-      //   }
+      // public boolean equals(final Object other) {
+      //   return other instanceof Name n && n.$proxiedSupplier == this.$proxiedSupplier; // Name is final
       // }
       .method(isEquals())
-      .intercept(EqualsMethod.isolated()
-                 .withIdentityFields(any()) // there's only one
-                 .withNonNullableFields(any()))
+      .intercept(IdentityMethod.EQUALS)
 
       // @Override // Superclass, Object
       // public int hashCode() {
-      //   int offset = 31;
-      //   return offset * 17 + this.$proxiedSupplier.hashCode(); // or similar
+      //   return this.$hashCode; // or, with Option.CONSTRUCTORLESS, System.identityHashCode(this.$proxiedSupplier)
       // }
       .method(isHashCode())
-      .intercept(HashCodeMethod.usingOffset(31)
-                 .withIdentityFields(any())
-                 .withNonNullableFields(any())
-                 .withMultiplier(17)) // see https://github.com/raphw/byte-buddy/issues/1764
+      .intercept(this.options.contains(Option.CONSTRUCTORLESS) ? IdentityMethod.HASH_CODE : HASH_CODE)
 
       // @Override // Superclass/interfaces/Object
       // public String toString() {
       //   return $proxied().toString();
+      //   // or, with Option.IDENTITY_TO_STRING: return getClass().getName() + "@" + Integer.toHexString(hashCode());
       // }
       .method(isToString())
-      .intercept(invoke(named("toString"))
-                 .onMethodCall(invoke(named("$proxied"))));
+      .intercept(this.options.contains(Option.IDENTITY_TO_STRING) ? IdentityMethod.TO_STRING : this.instrumented(TO_STRING));
+
+    if (this.options.contains(Option.STABLE)) {
+      // private volatile Superclass $proxiedInstance;
+      builder = builder.defineField("$proxiedInstance", superclass, PRIVATE, SYNTHETIC, FieldManifestation.VOLATILE);
+    }
+
+    if (this.acquireProxied != null) {
+      // private Superclass $acquireProxied() {
+      //   /* see proxied() */
+      // }
+      builder = builder
+        .defineMethod("$acquireProxied", superclass, PRIVATE, SYNTHETIC)
+        .intercept(this.instrumented(this.acquireProxied));
+    }
+
+    if (this.options.contains(Option.COMPACT)) {
+      builder = builder.visit(COMPACTION);
+    }
 
     return builder.make(this.typePool);
   }
 
 
+  /**
+   * Releases any state this {@link BBClientProxyClassGenerator} has cached about the supertypes of the client proxy
+   * classes it has {@linkplain #generate(String, TypeDefinition, Collection) generated}.
+   *
+   * <p>Such state makes generating client proxy classes with common supertypes faster, but keeps descriptions of those
+   * supertypes reachable. It is rebuilt as needed. It is also released automatically when memory is low.</p>
+   *
+   * <p>This method is normally called once a batch of client proxy classes has been generated and defined. Calling it
+   * does not affect the class files this {@link BBClientProxyClassGenerator} generates.</p>
+   */
+  public final void release() {
+    this.caches = null;
+  }
+
+  /**
+   * Returns an immutable {@link Set} of the {@link Option}s in effect for this {@link BBClientProxyClassGenerator}.
+   *
+   * @return a non-{@code null}, immutable {@link Set}
+   */
+  public final Set<Option> options() {
+    return this.options;
+  }
+
+  /**
+   * Returns a {@link String} describing everything about this {@link BBClientProxyClassGenerator} that affects the
+   * class files it {@linkplain #generate(String, TypeDefinition, Collection) generates}.
+   *
+   * @return a non-{@code null} {@link String}
+   */
+  final String configuration() {
+    final StringBuilder sb = new StringBuilder(this.getClass().getName()).append(";version=").append(VERSION);
+    for (final Option o : Option.values()) { // canonical order
+      if (this.options.contains(o)) {
+        sb.append(';').append(o.name());
+      }
+    }
+    return sb.toString();
+  }
+
+  private final Caches caches() {
+    final SoftReference<Caches> r = this.caches;
+    Caches c = r == null ? null : r.get();
+    if (c == null) {
+      // Racing threads may each create Caches; that is harmless.
+      c = new Caches(this.byteBuddy.with(new CachingMethodGraphCompiler()),
+                     cached(DELEGATED_METHODS, new ConcurrentHashMap<>()));
+      this.caches = new SoftReference<>(c);
+    }
+    return c;
+  }
+
+  // Returns the supplied Implementation, or, if Option.INSTRUMENTED is in effect, the supplied Implementation wrapped so
+  // that it records its calls:
+  //
+  // ClientProxyMetrics.MethodMetrics m = ldc methodMetrics "foo()" [ClientProxyMetrics.methodMetrics]; // resolved once
+  // long start = m.enter();
+  // try {
+  //   /* implementation */
+  // } finally {
+  //   m.exit(start);
+  // }
+  private final Implementation instrumented(final Implementation implementation) {
+    return this.instrumentation == null ? implementation : this.instrumentation.wrap(implementation);
+  }
+
+  // The implementation of $proxied(), or, if Option.STABLE or Option.PER_THREAD is in effect, of $acquireProxied().
+  private final Implementation proxied() {
+    final Implementation proxied;
+    if (this.options.contains(Option.INVOKEDYNAMIC)) {
+      // return (Superclass)invokedynamic proxied(this.$proxiedSupplier) [ProxiedCallSites.proxied];
+      proxied = InvokeDynamic.bootstrap(TypeDescription.ForLoadedType.of(ProxiedCallSites.class)
+                                        .getDeclaredMethods()
+                                        .filter(named("proxied"))
+                                        .getOnly())
+        .invoke("proxied", TypeDescription.ForLoadedType.of(Object.class))
+        .withField("$proxiedSupplier")
+        .withAssigner(Assigner.DEFAULT, Assigner.Typing.DYNAMIC);
+    } else {
+      // return this.$proxiedSupplier.get();
+      proxied = invoke(named("get"))
+        .onField("$proxiedSupplier")
+        .withAssigner(Assigner.DEFAULT, Assigner.Typing.DYNAMIC);
+    }
+    if (this.options.contains(Option.STABLE)) {
+      // Superclass i = this.$proxiedInstance;
+      // if (i == null) {
+      //   i = /* proxied, as above */;
+      //   this.$proxiedInstance = i;
+      // }
+      // return i;
+      return Advice.to(StableProxiedAdvice.class).wrap(proxied);
+    } else if (this.options.contains(Option.PER_THREAD)) {
+      // Superclass i = (Superclass)ProxiedThreadCache.get(this);
+      // if (i == null) {
+      //   i = /* proxied, as above */;
+      //   ProxiedThreadCache.put(this, i);
+      // }
+      // return i;
+      return Advice.to(PerThreadProxiedAdvice.class).wrap(proxied);
+    }
+    return proxied;
+  }
+
+
   /*
    * Static methods.
    */
 
 
+  private static final void addSuperinterfaces(final TypeDescription i, final Set<? super TypeDescription> s) {
+    if (s.add(i)) {
+      for (final TypeDescription.Generic si : i.getInterfaces()) {
+        addSuperinterfaces(si.asErasure(), s);
+      }
+    }
+  }
+
+  // Returns an ElementMatcher that matches methods matched by the supplied ElementMatcher that are also declared, or
+  // overridden, by the supplied interfaces or their superinterfaces. Methods are matched by name and by parameter
+  // types as seen from the client proxy class, so that, for example, a superclass' compareTo(Superclass) method is
+  // matched by Comparable<Superclass>. This is equivalent to, but, for wide superclasses, much faster than,
+  // isOverriddenFrom(...), which searches the entire type hierarchy for each method.
+  private static final ElementMatcher<MethodDescription> clientVisible(final ElementMatcher<? super MethodDescription> delegatedMethods,
+                                                                       final TypeDefinition superclass,
+                                                                       final Collection<? extends TypeDefinition> interfaces) {
+    final Set<TypeDescription> clientVisibleTypes = new HashSet<>();
+    for (final TypeDefinition i : interfaces) {
+      addSuperinterfaces(i.asErasure(), clientVisibleTypes);
+    }
+    final Set<List<?>> signatures = new HashSet<>();
+    final Set<TypeDescription.Generic> seen = new HashSet<>();
+    final Deque<TypeDefinition> q = new ArrayDeque<>(interfaces);
+    q.add(superclass);
+    while (!q.isEmpty()) {
+      final TypeDescription.Generic t = q.pop().asGenericType();
+      if (seen.add(t)) {
+        if (clientVisibleTypes.contains(t.asErasure())) {
+          for (final MethodDescription m : t.getDeclaredMethods()) {
+            signatures.add(signature(m));
+          }
+        }
+        final TypeDescription.Generic s = t.getSuperClass();
+        if (s != null) {
+          q.add(s);
+        }
+        q.addAll(t.getInterfaces());
+      }
+    }
+    return m -> delegatedMethods.matches(m) && signatures.contains(signature(m));
+  }
+
   private static final ElementMatcher<MethodDescription> hasOnePackagePrivateParameter() {
     return m -> {
       for (final ParameterDescription pd : m.getParameters()) {
@@ -252,6 +644,10 @@ public final class BBClientProxyClassGenerator {
     return isDeclaredBy(typeNameStartsWith("java."));
   }
 
+  private static final List<?> signature(final MethodDescription m) {
+    return List.of(m.getInternalName(), m.asTypeToken().getParameterTypes());
+  }
+
   private final TypeDescription typeDescription(final String canonicalName) {
     return this.typePool.describe(canonicalName).resolve();
   }
@@ -261,4 +657,520 @@ public final class BBClientProxyClassGenerator {
     return t -> t.getTypeName().startsWith(prefix);
   }
 
+
+  /*
+   * Inner and nested classes.
+   */
+
+
+  // See caches().
+  private static final record Caches(ByteBuddy byteBuddy, ElementMatcher<? super MethodDescription> delegatedMethods) {}
+
+  // Inlined into delegating methods, $proxied() and $acquireProxied() by Option.INSTRUMENTED.
+  private static final class InstrumentedAdvice {
+
+    private InstrumentedAdvice() {
+      super();
+    }
+
+    @Advice.OnMethodEnter
+    private static final ClientProxyMetrics.MethodMetrics enter(@MethodMetrics final ClientProxyMetrics.MethodMetrics m,
+                                                                @Advice.Local("start") long start) {
+      start = m.enter();
+      return m;
+    }
+
+    @Advice.OnMethodExit(onThrowable = Throwable.class)
+    private static final void exit(@Advice.Enter final ClientProxyMetrics.MethodMetrics m,
+                                   @Advice.Local("start") final long start) {
+      m.exit(start);
+    }
+
+  }
+
+  // Binds an InstrumentedAdvice parameter to the ClientProxyMetrics.MethodMetrics of the instrumented method.
+  @Retention(RetentionPolicy.RUNTIME)
+  @Target(ElementType.PARAMETER)
+  private static @interface MethodMetrics {}
+
+  // Loads the ClientProxyMetrics.MethodMetrics of the instrumented method as a dynamic constant, so that it is looked up
+  // only the first time the method is called.
+  private static enum MethodMetricsMapping implements Advice.OffsetMapping, Advice.OffsetMapping.Factory<MethodMetrics> {
+
+    INSTANCE;
+
+    private static final MethodDescription.InDefinedShape BOOTSTRAP =
+      TypeDescription.ForLoadedType.of(ClientProxyMetrics.class)
+      .getDeclaredMethods()
+      .filter(named("methodMetrics"))
+      .getOnly();
+
+    @Override // Advice.OffsetMapping.Factory<MethodMetrics>
+    public final Class<MethodMetrics> getAnnotationType() {
+      return MethodMetrics.class;
+    }
+
+    @Override // Advice.OffsetMapping.Factory<MethodMetrics>
+    public final Advice.OffsetMapping make(final ParameterDescription.InDefinedShape target,
+                                           final AnnotationDescription.Loadable<MethodMetrics> annotation,
+                                           final AdviceType adviceType) {
+      if (!target.getType().asErasure().represents(ClientProxyMetrics.MethodMetrics.class)) {
+        throw new IllegalStateException("target: " + target);
+      }
+      return this;
+    }
+
+    @Override // Advice.OffsetMapping
+    public final Target resolve(final TypeDescription instrumentedType,
+                                final MethodDescription instrumentedMethod,
+                                final Assigner assigner,
+                                final Advice.ArgumentHandler argumentHandler,
+                                final Sort sort) {
+      // The same signature @Advice.Origin("#m#s") would yield, e.g. "frob(java.lang.String,int)". It cannot be the
+      // constant's name, which may not contain '.', so it is its bootstrap argument.
+      final String method =
+        instrumentedMethod.getInternalName() +
+        instrumentedMethod.getParameters().asTypeList().asErasures().stream()
+        .map(TypeDescription::getName)
+        .collect(Collectors.joining(",", "(", ")"));
+      return new Target.ForStackManipulation(new JavaConstantValue(JavaConstant.Dynamic.bootstrap("methodMetrics",
+                                                                                                   BOOTSTRAP,
+                                                                                                   method)));
+    }
+
+  }
+
+  // Inlined into $acquireProxied() by Option.STABLE.
+  private static final class StableProxiedAdvice {
+
+    private StableProxiedAdvice() {
+      super();
+    }
+
+    @Advice.OnMethodEnter(skipOn = Advice.OnNonDefaultValue.class)
+    private static final Object enter(@Advice.FieldValue("$proxiedInstance") final Object instance) {
+      return instance;
+    }
+
+    @Advice.OnMethodExit
+    private static final void exit(@Advice.Enter final Object instance,
+                                   @Advice.Return(readOnly = false, typing = Assigner.Typing.DYNAMIC) Object returned,
+                                   @Advice.FieldValue(value = "$proxiedInstance",
+                                                      readOnly = false,
+                                                      typing = Assigner.Typing.DYNAMIC) Object field) {
+      if (instance == null) {
+        field = returned;
+      } else {
+        returned = instance;
+      }
+    }
+
+  }
+
+  // Inlined into $acquireProxied() by Option.PER_THREAD.
+  private static final class PerThreadProxiedAdvice {
+
+    private PerThreadProxiedAdvice() {
+      super();
+    }
+
+    @Advice.OnMethodEnter(skipOn = Advice.OnNonDefaultValue.class)
+    private static final Object enter(@Advice.This final Object proxy) {
+      return ProxiedThreadCache.get(proxy);
+    }
+
+    @Advice.OnMethodExit
+    private static final void exit(@Advice.This final Object proxy,
+                                   @Advice.Enter final Object instance,
+                                   @Advice.Return(readOnly = false, typing = Assigner.Typing.DYNAMIC) Object returned) {
+      if (instance == null) {
+        ProxiedThreadCache.put(proxy, returned);
+      } else {
+        returned = instance;
+      }
+    }
+
+  }
+
+  // The bodies of equals(Object), with Option.CONSTRUCTORLESS, hashCode(), and, with Option.IDENTITY_TO_STRING,
+  // toString(). They are written directly because none can be expressed with Byte Buddy's stock Implementations as
+  // cheaply: EqualsMethod compares classes with getClass(), HashCodeMethod combines rather than identity-hashes field
+  // values, and any Implementation producing the String would need state of its own.
+  private static enum IdentityMethod implements ByteCodeAppender, Implementation {
+
+    EQUALS {
+      @Override // ByteCodeAppender
+      public final Size apply(final MethodVisitor mv,
+                              final Implementation.Context context,
+                              final MethodDescription instrumentedMethod) {
+        final TypeDescription instrumentedType = context.getInstrumentedType();
+        final String owner = instrumentedType.getInternalName();
+        final String supplier =
+          instrumentedType.getDeclaredFields().filter(named("$proxiedSupplier")).getOnly().getDescriptor();
+        final Label notEqual = new Label();
+        mv.visitVarInsn(Opcodes.ALOAD, 1);
+        mv.visitTypeInsn(Opcodes.INSTANCEOF, owner);
+        mv.visitJumpInsn(Opcodes.IFEQ, notEqual);
+        mv.visitVarInsn(Opcodes.ALOAD, 1);
+        mv.visitTypeInsn(Opcodes.CHECKCAST, owner);
+        mv.visitFieldInsn(Opcodes.GETFIELD, owner, "$proxiedSupplier", supplier);
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitFieldInsn(Opcodes.GETFIELD, owner, "$proxiedSupplier", supplier);
+        mv.visitJumpInsn(Opcodes.IF_ACMPNE, notEqual);
+        mv.visitInsn(Opcodes.ICONST_1);
+        mv.visitInsn(Opcodes.IRETURN);
+        mv.visitLabel(notEqual);
+        if (context.getClassFileVersion().isAtLeast(ClassFileVersion.JAVA_V6)) {
+          mv.visitFrame(Opcodes.F_SAME, 0, null, 0, null);
+        }
+        mv.visitInsn(Opcodes.ICONST_0);
+        mv.visitInsn(Opcodes.IRETURN);
+        return new Size(2, instrumentedMethod.getStackSize());
+      }
+    },
+
+    // Without a constructor there is nowhere to compute a final $hashCode once, so it is derived from $proxiedSupplier
+    // on each call. System.identityHashCode is an intrinsic, so this costs little more than reading a field, and no
+    // client proxy can be seen with a hash code that disagrees with its supplier's.
+    HASH_CODE {
+      @Override // ByteCodeAppender
+      public final Size apply(final MethodVisitor mv,
+                              final Implementation.Context context,
+                              final MethodDescription instrumentedMethod) {
+        final TypeDescription instrumentedType = context.getInstrumentedType();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitFieldInsn(Opcodes.GETFIELD,
+                          instrumentedType.getInternalName(),
+                          "$proxiedSupplier",
+                          instrumentedType.getDeclaredFields().filter(named("$proxiedSupplier")).getOnly().getDescriptor());
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC,
+                           Type.getInternalName(System.class),
+                           "identityHashCode",
+                           "(" + Type.getDescriptor(Object.class) + ")I",
+                           false);
+        mv.visitInsn(Opcodes.IRETURN);
+        return new Size(1, instrumentedMethod.getStackSize());
+      }
+    },
+
+    TO_STRING {
+      @Override // ByteCodeAppender
+      public final Size apply(final MethodVisitor mv,
+                              final Implementation.Context context,
+                              final MethodDescription instrumentedMethod) {
+        final TypeDescription instrumentedType = context.getInstrumentedType();
+        // Exactly what Object's toString() would return. The class name is read at run time, not emitted as a constant,
+        // because the name of a hidden class is not known until it is defined.
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/Object", "getClass", "()Ljava/lang/Class;", false);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/Class", "getName", "()Ljava/lang/String;", false);
+        mv.visitLdcInsn("@");
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL,
+                           "java/lang/String",
+                           "concat",
+                           "(Ljava/lang/String;)Ljava/lang/String;",
+                           false);
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, instrumentedType.getInternalName(), "hashCode", "()I", false);
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Integer", "toHexString", "(I)Ljava/lang/String;", false);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL,
+                           "java/lang/String",
+                           "concat",
+                           "(Ljava/lang/String;)Ljava/lang/String;",
+                           false);
+        mv.visitInsn(Opcodes.ARETURN);
+        return new Size(2, instrumentedMethod.getStackSize());
+      }
+    };
+
+    @Override // Implementation
+    public final InstrumentedType prepare(final InstrumentedType instrumentedType) {
+      return instrumentedType;
+    }
+
+    @Override // Implementation
+    public final ByteCodeAppender appender(final Implementation.Target target) {
+      return this;
+    }
+
+  }
+
+  // The bodies of $proxied() when Option.STABLE or Option.PER_THREAD is in effect. They are written directly, rather
+  // than with Advice, because each must stay within -XX:MaxInlineSize (35 bytes) so that the chain from a delegating
+  // method through $proxied() to the contextual reference inlines. (Advice's bookkeeping alone would exceed it.)
+  private static enum ProxiedFastPath implements ByteCodeAppender, Implementation {
+
+    // Superclass i = this.$proxiedInstance;
+    // return i != null ? i : this.$acquireProxied();
+    STABLE {
+      @Override // ProxiedFastPath
+      final void load(final MethodVisitor mv, final String owner, final String returnType) {
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitFieldInsn(Opcodes.GETFIELD, owner, "$proxiedInstance", returnType);
+      }
+    },
+
+    // Object i = ProxiedThreadCache.get(this);
+    // return (Superclass)(i != null ? i : this.$acquireProxied());
+    PER_THREAD {
+      @Override // ProxiedFastPath
+      final void load(final MethodVisitor mv, final String owner, final String returnType) {
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC,
+                           Type.getInternalName(ProxiedThreadCache.class),
+                           "get",
+                           Type.getMethodDescriptor(Type.getType(Object.class), Type.getType(Object.class)),
+                           false);
+      }
+    };
+
+    @Override // Implementation
+    public final InstrumentedType prepare(final InstrumentedType instrumentedType) {
+      return instrumentedType;
+    }
+
+    @Override // Implementation
+    public final ByteCodeAppender appender(final Implementation.Target target) {
+      return this;
+    }
+
+    @Override // ByteCodeAppender
+    public final Size apply(final MethodVisitor mv,
+                            final Implementation.Context context,
+                            final MethodDescription instrumentedMethod) {
+      final String owner = context.getInstrumentedType().getInternalName();
+      final TypeDescription returnType = instrumentedMethod.getReturnType().asErasure();
+      final Label done = new Label();
+      this.load(mv, owner, returnType.getDescriptor());
+      mv.visitInsn(Opcodes.DUP);
+      mv.visitJumpInsn(Opcodes.IFNONNULL, done);
+      mv.visitInsn(Opcodes.POP);
+      mv.visitVarInsn(Opcodes.ALOAD, 0);
+      mv.visitMethodInsn(Opcodes.INVOKESPECIAL, owner, "$acquireProxied", "()" + returnType.getDescriptor(), false);
+      mv.visitLabel(done);
+      if (context.getClassFileVersion().isAtLeast(ClassFileVersion.JAVA_V6)) {
+        // The cached contextual reference, if any, is on the stack; the locals are unchanged.
+        mv.visitFrame(Opcodes.F_SAME1,
+                      0,
+                      null,
+                      1,
+                      new Object[] { this == STABLE ? returnType.getInternalName() : Type.getInternalName(Object.class) });
+      }
+      if (this == PER_THREAD) {
+        mv.visitTypeInsn(Opcodes.CHECKCAST, returnType.getInternalName());
+      }
+      mv.visitInsn(Opcodes.ARETURN);
+      return new Size(2, instrumentedMethod.getStackSize());
+    }
+
+    // Pushes the cached contextual reference, or null, onto the operand stack.
+    abstract void load(final MethodVisitor mv, final String owner, final String returnType);
+
+  }
+
+  // The body of $proxiedSupplier(Supplier) when Option.CONSTRUCTORLESS is in effect. The once-only check is a single
+  // compareAndSet on the $proxiedSupplier field, so of two threads racing to set it exactly one succeeds. The VarHandle
+  // is a dynamic constant, resolved once per client proxy class by ConstantBootstraps#fieldVarHandle, which needs
+  // neither a type initializer (unavailable under Option.FAST) nor a static field. There is no $hashCode field to write
+  // afterwards; hashCode() derives it from $proxiedSupplier instead (see IdentityMethod#HASH_CODE).
+  private static enum ProxiedSupplierSetter implements ByteCodeAppender, Implementation {
+
+    INSTANCE;
+
+    @Override // Implementation
+    public final InstrumentedType prepare(final InstrumentedType instrumentedType) {
+      return instrumentedType;
+    }
+
+    @Override // Implementation
+    public final ByteCodeAppender appender(final Implementation.Target target) {
+      return this;
+    }
+
+    @Override // ByteCodeAppender
+    public final Size apply(final MethodVisitor mv,
+                            final Implementation.Context context,
+                            final MethodDescription instrumentedMethod) {
+      final TypeDescription instrumentedType = context.getInstrumentedType();
+      final String owner = instrumentedType.getInternalName();
+      final String object = Type.getDescriptor(Object.class);
+      final String supplier = Type.getDescriptor(Supplier.class);
+      final String varHandle = Type.getDescriptor(VarHandle.class);
+      final Label set = new Label();
+      mv.visitVarInsn(Opcodes.ALOAD, 1);
+      mv.visitLdcInsn("proxiedSupplier");
+      mv.visitMethodInsn(Opcodes.INVOKESTATIC,
+                         Type.getInternalName(Objects.class),
+                         "requireNonNull",
+                         "(" + object + Type.getDescriptor(String.class) + ")" + object,
+                         false);
+      mv.visitInsn(Opcodes.POP);
+      mv.visitLdcInsn(new ConstantDynamic("$proxiedSupplier",
+                                          varHandle,
+                                          new Handle(Opcodes.H_INVOKESTATIC,
+                                                     Type.getInternalName(ConstantBootstraps.class),
+                                                     "fieldVarHandle",
+                                                     "(" + Type.getDescriptor(MethodHandles.Lookup.class)
+                                                     + Type.getDescriptor(String.class)
+                                                     + Type.getDescriptor(Class.class)
+                                                     + Type.getDescriptor(Class.class)
+                                                     + Type.getDescriptor(Class.class)
+                                                     + ")" + varHandle,
+                                                     false),
+                                          Type.getObjectType(owner),
+                                          Type.getType(supplier)));
+      mv.visitVarInsn(Opcodes.ALOAD, 0);
+      mv.visitInsn(Opcodes.ACONST_NULL);
+      mv.visitVarInsn(Opcodes.ALOAD, 1);
+      // The receiver is described as an Object, since a hidden client proxy class cannot be named in a descriptor.
+      mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL,
+                         Type.getInternalName(VarHandle.class),
+                         "compareAndSet",
+                         "(" + object + supplier + supplier + ")Z",
+                         false);
+      mv.visitJumpInsn(Opcodes.IFNE, set);
+      mv.visitTypeInsn(Opcodes.NEW, Type.getInternalName(IllegalStateException.class));
+      mv.visitInsn(Opcodes.DUP);
+      mv.visitMethodInsn(Opcodes.INVOKESPECIAL, Type.getInternalName(IllegalStateException.class), "<init>", "()V", false);
+      mv.visitInsn(Opcodes.ATHROW);
+      mv.visitLabel(set);
+      if (context.getClassFileVersion().isAtLeast(ClassFileVersion.JAVA_V6)) {
+        mv.visitFrame(Opcodes.F_SAME, 0, null, 0, null);
+      }
+      mv.visitInsn(Opcodes.RETURN);
+      return new Size(4, instrumentedMethod.getStackSize());
+    }
+
+  }
+
+  /**
+   * An option governing the class files a {@link BBClientProxyClassGenerator} {@linkplain #generate(String,
+   * TypeDefinition, Collection) generates}.
+   *
+   * @author <a href="https://about.me/lairdnelson" target="_top">Laird Nelson</a>
+   */
+  public static enum Option {
+
+    /**
+     * Causes the generated {@code $proxied()} method to acquire its contextual reference through an {@code
+     * invokedynamic} instruction {@linkplain ProxiedCallSites#proxied(java.lang.invoke.MethodHandles.Lookup, String,
+     * java.lang.invoke.MethodType) linked} to an inline cache private to the client proxy class, rather than through an
+     * ordinary interface call whose type profile may become polymorphic or megamorphic.
+     *
+     * <p>A client proxy class generated with this option refers to {@link ProxiedCallSites}, so the module containing
+     * it must read this module.</p>
+     */
+    INVOKEDYNAMIC,
+
+    /**
+     * Causes the generated {@code $proxied()} method to acquire its contextual reference only once, the first time it
+     * is invoked, and to store it in a {@code volatile} field from which all subsequent invocations read it.
+     *
+     * <p>This option is suitable only for client proxies whose contextual references never change once created, such
+     * as those of singleton or application scopes. It does not change the semantics of the generated {@code equals}
+     * and {@code hashCode} methods, which continue to consider only the {@link java.util.function.Supplier} of
+     * contextual references.</p>
+     *
+     * <p>Multiple threads may race to acquire the contextual reference the first time. The contextual reference is
+     * therefore presumed to be the same no matter which thread acquires it.</p>
+     */
+    STABLE,
+
+    /**
+     * Causes the generated {@code $proxied()} method to cache the contextual references it acquires in the {@link
+     * ProxiedThreadCache} of the current thread, and to use a cached contextual reference, if there is one, instead of
+     * acquiring a new one.
+     *
+     * <p>This option is suitable for client proxies whose contextual references are bound to a thread for the duration
+     * of a request or other unit of work, such as those of request scopes. {@link ProxiedThreadCache#invalidate()} must
+     * be called at the end of each such unit of work. It may not be combined with {@link #STABLE}.</p>
+     *
+     * <p>A client proxy class generated with this option refers to {@link ProxiedThreadCache}, so the module containing
+     * it must read this module.</p>
+     */
+    PER_THREAD,
+
+    /**
+     * Causes client proxy classes to be generated with less checking and bookkeeping.
+     *
+     * <p>Specifically, Byte Buddy's validation of the generated type is disabled, no visibility bridges are generated,
+     * and the implementation context, which client proxy classes never need, is disabled. Visibility bridges matter
+     * only to reflective callers of public methods that a client proxy class inherits without overriding from a
+     * non-{@code public} class. Such methods are normally overridden anyway.</p>
+     *
+     * <p>Errors that validation would have reported, such as an illegal name, are instead reported when the client
+     * proxy class is defined, if at all.</p>
+     */
+    FAST,
+
+    /**
+     * Causes client proxy classes to be generated without constructors, so that their instances may be {@linkplain
+     * ClientProxyInstantiator#instantiate(Class, java.util.function.Supplier) created} without running any superclass
+     * constructor.
+     *
+     * <p>A client proxy class generated with this option has a {@code public} {@code $proxiedSupplier} method instead of
+     * a constructor. The method accepts the {@link java.util.function.Supplier} of contextual references, and can be
+     * called only once per instance. Its {@link java.util.function.Supplier} is stored in a {@code volatile} field
+     * rather than a {@code final} one. The superclass need not have a usable zero-argument constructor.</p>
+     *
+     * <p>Instances of such a client proxy class can be created only by {@link ClientProxyInstantiator}. A {@link
+     * BBClientProxier}, which creates client proxies through their constructors, therefore cannot use a {@link
+     * BBClientProxyClassGenerator} with this option.</p>
+     */
+    CONSTRUCTORLESS,
+
+    /**
+     * Causes client proxy classes to delegate only those methods declared, or overridden, by the interfaces supplied to
+     * the {@link #generate(String, TypeDefinition, Collection) generate} method, which are presumed to be the only types
+     * through which clients will use them.
+     *
+     * <p>Other methods of the superclass are not overridden at all. Calls to them therefore fall through to the
+     * superclass' implementations, operating on the client proxy's own, unused, state, or, if they are {@code
+     * abstract}, fail fast with an {@link AbstractMethodError}. Client proxy classes of wide superclasses accessed
+     * through narrow interfaces are much smaller, and are generated, verified and compiled much faster, with this
+     * option.</p>
+     *
+     * <p>A client proxy class whose superclass is {@link Object} already delegates only the methods of its interfaces,
+     * and is unaffected by this option.</p>
+     */
+    SELECTIVE,
+
+    /**
+     * Causes client proxy classes to be generated without metadata that neither the Java Virtual Machine nor the client
+     * proxy class itself requires: generic signatures, parameter names and modifiers, and annotations copied from
+     * overridden methods and their parameters.
+     *
+     * <p>Reflective callers of a client proxy class generated with this option see erasures where they would otherwise
+     * see generic types, synthesized names where they would otherwise see parameter names, and no annotations on its
+     * methods. Its behavior is otherwise unchanged.</p>
+     */
+    COMPACT,
+
+    /**
+     * Causes the generated {@code toString()} method to return what {@link Object#toString()} would return for the
+     * client proxy, namely the {@linkplain Class#getName() name} of its class, followed by {@code @}, followed by its hash
+     * code in hexadecimal, rather than the result of invoking {@code toString()} on its contextual reference.
+     *
+     * <p>Without this option, merely logging a client proxy, or otherwise converting it to a {@link String}, acquires
+     * its contextual reference, which may, for example, require an active scope, or create a contextual instance.</p>
+     */
+    IDENTITY_TO_STRING,
+
+    /**
+     * Causes client proxy classes to be generated that record, in {@link ClientProxyMetrics}, how often each of their
+     * delegating methods, their {@code $proxied()} method and their {@code $acquireProxied()} method, if any, is called,
+     * and, for a {@linkplain ClientProxyMetrics#samplingInterval(int) sample} of those calls, how long each took.
+     *
+     * <p>Each method looks up its metrics only once, the first time it is called. Recording nevertheless costs each call
+     * at least one counter increment, and makes the generated methods too large for HotSpot to inline at any but the
+     * hottest call sites, so this option is intended for diagnosis rather than production. Client proxy classes generated
+     * without it are unaffected.</p>
+     *
+     * <p>A client proxy class generated with this option refers to {@link ClientProxyMetrics}, so the module containing
+     * it must read this module.</p>
+     */
+    INSTRUMENTED;
+
+  }
+
 }
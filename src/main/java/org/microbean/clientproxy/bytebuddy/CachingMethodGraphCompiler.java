@@ -0,0 +1,146 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2025 microBean™.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.microbean.clientproxy.bytebuddy;
+
+import java.util.Map;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.bytebuddy.description.method.MethodDescription;
+
+import net.bytebuddy.description.type.PackageDescription;
+import net.bytebuddy.description.type.TypeDefinition;
+import net.bytebuddy.description.type.TypeDescription;
+
+import net.bytebuddy.dynamic.scaffold.MethodGraph;
+import net.bytebuddy.dynamic.scaffold.MethodGraph.Compiler.Default.Harmonizer.ForJavaMethod;
+
+import net.bytebuddy.matcher.ElementMatcher;
+
+/**
+ * A {@link MethodGraph.Compiler} that behaves exactly like {@link MethodGraph.Compiler.Default#forJavaHierarchy()},
+ * except that it analyzes each supertype only once per package from which it is viewed, and reuses the analysis for
+ * every subsequent type it compiles.
+ *
+ * <p>Client proxy classes frequently share supertypes, such as abstract base classes and framework interfaces. Without
+ * this cache, the method graph of every such supertype, and of all of its supertypes, would be recomputed for every
+ * client proxy class.</p>
+ *
+ * <p>Instances of this class are safe for concurrent use. An instance should be used with only one {@link
+ * net.bytebuddy.pool.TypePool}.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson" target="_top">Laird Nelson</a>
+ */
+final class CachingMethodGraphCompiler extends MethodGraph.Compiler.AbstractBase {
+
+  // Analyses of supertypes, indexed by the package they are viewed from and the (generic) supertype. The values are
+  // MethodGraph.Compiler.Default.Key.Store instances, which are immutable once built, but whose type is accessible
+  // only to subclasses of MethodGraph.Compiler.Default.
+  private final ConcurrentMap<Supertype, Object> stores;
+
+  CachingMethodGraphCompiler() {
+    super();
+    this.stores = new ConcurrentHashMap<>();
+  }
+
+  @Override // MethodGraph.Compiler.AbstractBase
+  public final MethodGraph.Linked compile(final TypeDefinition typeDefinition, final TypeDescription viewPoint) {
+    return new DefaultAccess.KeyAccess.ScopedCompiler<>(this.stores, ForJavaMethod.INSTANCE, packageName(viewPoint))
+      .compile(typeDefinition, viewPoint);
+  }
+
+  /**
+   * Returns the number of supertype analyses this {@link CachingMethodGraphCompiler} has cached.
+   *
+   * @return the number of supertype analyses this {@link CachingMethodGraphCompiler} has cached
+   */
+  final int size() {
+    return this.stores.size();
+  }
+
+  private static final String packageName(final TypeDescription t) {
+    final PackageDescription p = t.getPackage();
+    return p == null ? "" : p.getName();
+  }
+
+
+  /*
+   * Inner and nested classes.
+   */
+
+
+  // The analysis of a supertype depends only on the supertype itself and on which of its methods are visible from the
+  // type being compiled. A supertype's public and protected methods are always visible from its subtypes, so only its
+  // package-private methods, and hence only the package of the type being compiled, matter.
+  private static final record Supertype(String packageName, TypeDefinition type) {}
+
+  // MethodGraph.Compiler.Default.Key.Store, the type of a supertype analysis, is a protected member of the protected
+  // MethodGraph.Compiler.Default.Key class. It can be named only within the body of a subclass of Key, which in turn can
+  // be named only within the body of a subclass of MethodGraph.Compiler.Default. These two otherwise useless classes
+  // provide such bodies.
+  private abstract static class DefaultAccess extends MethodGraph.Compiler.Default<Object> {
+
+    private DefaultAccess() {
+      super(null, null, null);
+    }
+
+    private abstract static class KeyAccess extends Key<Object> {
+
+      private KeyAccess() {
+        super(null, 0);
+      }
+
+      private static final class ScopedCompiler<T> extends MethodGraph.Compiler.Default<T> {
+
+        private final ConcurrentMap<Supertype, Object> stores;
+
+        private final String packageName;
+
+        private ScopedCompiler(final ConcurrentMap<Supertype, Object> stores,
+                               final Harmonizer<T> harmonizer,
+                               final String packageName) {
+          // See MethodGraph.Compiler.Default#forJavaHierarchy() and MethodGraph.Compiler.Default#of(Harmonizer,
+          // Merger).
+          super(harmonizer, Merger.Directional.LEFT, TypeDescription.Generic.Visitor.Reifying.INITIATING);
+          this.stores = stores;
+          this.packageName = packageName;
+        }
+
+        @Override // MethodGraph.Compiler.Default<T>
+        @SuppressWarnings("unchecked")
+        protected final Key.Store<T> analyze(final TypeDefinition typeDefinition,
+                                             final TypeDefinition key,
+                                             final Map<TypeDefinition, Key.Store<T>> snapshots,
+                                             final ElementMatcher<? super MethodDescription> relevanceMatcher) {
+          Key.Store<T> store = snapshots.get(key);
+          if (store == null) {
+            final Supertype supertype = new Supertype(this.packageName, key);
+            store = (Key.Store<T>)this.stores.get(supertype);
+            if (store == null) {
+              store = this.doAnalyze(typeDefinition, snapshots, relevanceMatcher);
+              this.stores.putIfAbsent(supertype, store);
+            }
+            snapshots.put(key, store);
+          }
+          return store;
+        }
+
+      }
+
+    }
+
+  }
+
+}
@@ -0,0 +1,144 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2025 microBean™.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.microbean.clientproxy.bytebuddy;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.time.LocalDateTime;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import java.util.zip.ZipEntry;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * A utility class for writing {@link ClientProxyClassDefinition}s into a reproducible jar file.
+ *
+ * <p>This supports class data sharing (<dfn>CDS</dfn>) and similar ahead-of-time technologies. Client proxy classes
+ * defined at run time through a {@link java.lang.invoke.MethodHandles.Lookup} cannot be archived. Client proxy classes
+ * loaded from the class path can be. A typical workflow is:</p>
+ *
+ * <ol>
+ *
+ * <li>In a <dfn>training run</dfn>, create {@link BBClientProxier}s with a suitably large {@link
+ * ClientProxyClassCache}, exercise the application, and then {@linkplain #write(Path, Collection) write} the cache's
+ * {@linkplain ClientProxyClassCache#definitions() definitions} to a jar file.</li>
+ *
+ * <li>In later runs, place that jar file on the class path. {@link BBClientProxier} will load the client proxy classes
+ * it contains by name instead of generating them. Options such as {@code -XX:ArchiveClassesAtExit} and {@code
+ * -XX:SharedArchiveFile} can then archive them along with the rest of the application.</li>
+ *
+ * </ol>
+ *
+ * <p>Because a client proxy class must be in the same run-time package as its superclass, this technique applies only
+ * to superclasses that are themselves loaded from the class path.</p>
+ *
+ * <p>The jar files written by this class are deterministic: entries are sorted by name, and all timestamps are
+ * fixed. Given the same definitions, the same bytes are written.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson" target="_top">Laird Nelson</a>
+ */
+public final class ClientProxyClassArchive {
+
+  // The earliest time representable in a zip file; used for reproducibility.
+  private static final LocalDateTime EPOCH = LocalDateTime.of(1980, 1, 1, 0, 0, 0);
+
+  private ClientProxyClassArchive() {
+    super();
+  }
+
+  /**
+   * Writes the supplied {@link ClientProxyClassDefinition}s as class files into a new jar file identified by the supplied
+   * {@link Path}, atomically replacing any existing file.
+   *
+   * @param jar a {@link Path} identifying the jar file to write; must not be {@code null}
+   *
+   * @param definitions a {@link Collection} of {@link ClientProxyClassDefinition}s; must not be {@code null}
+   *
+   * @return the number of class files written
+   *
+   * @exception NullPointerException if any argument is {@code null}
+   *
+   * @exception IOException if an input or output error occurs
+   *
+   * @exception IllegalArgumentException if two {@link ClientProxyClassDefinition}s with the same {@linkplain
+   * ClientProxyClassDefinition#name() name} but different contents are supplied
+   */
+  public static final int write(final Path jar, final Collection<? extends ClientProxyClassDefinition> definitions)
+    throws IOException {
+    final List<ClientProxyClassDefinition> ds = new ArrayList<>(definitions);
+    ds.sort(Comparator.comparing(ClientProxyClassDefinition::name));
+    for (int i = 1; i < ds.size(); i++) {
+      final ClientProxyClassDefinition d = ds.get(i);
+      if (d.name().equals(ds.get(i - 1).name()) && !d.equals(ds.get(i - 1))) {
+        throw new IllegalArgumentException("conflicting definitions: " + d + ", " + ds.get(i - 1));
+      }
+    }
+    final Manifest manifest = new Manifest();
+    manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    final Path parent = jar.toAbsolutePath().getParent();
+    Files.createDirectories(parent);
+    final Path temp = Files.createTempFile(parent, jar.getFileName().toString(), ".tmp");
+    int count = 0;
+    try {
+      try (final OutputStream os = Files.newOutputStream(temp);
+           final JarOutputStream jos = new JarOutputStream(os)) {
+        final ZipEntry manifestEntry = entry("META-INF/MANIFEST.MF");
+        jos.putNextEntry(manifestEntry);
+        manifest.write(jos);
+        jos.closeEntry();
+        String previousName = null;
+        for (final ClientProxyClassDefinition d : ds) {
+          if (d.name().equals(previousName)) {
+            continue; // identical duplicate
+          }
+          previousName = d.name();
+          jos.putNextEntry(entry(d.name().replace('.', '/') + ".class"));
+          jos.write(d.bytes());
+          jos.closeEntry();
+          ++count;
+        }
+      }
+      try {
+        Files.move(temp, jar, ATOMIC_MOVE, REPLACE_EXISTING);
+      } catch (final AtomicMoveNotSupportedException e) {
+        Files.move(temp, jar, REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+    return count;
+  }
+
+  private static final ZipEntry entry(final String name) {
+    final ZipEntry e = new ZipEntry(name);
+    e.setTimeLocal(EPOCH);
+    return e;
+  }
+
+}
@@ -0,0 +1,360 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2025 microBean™.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.microbean.clientproxy.bytebuddy;
+
+import java.nio.file.Path;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded, thread-safe cache of {@link ClientProxyClassDefinition}s indexed by <dfn>structural fingerprint</dfn>,
+ * suitable for sharing among many {@link BBClientProxier} instances.
+ *
+ * <p>When the number of cached definitions exceeds this cache's {@linkplain #maximumSize() maximum size}, the least
+ * recently used definition is evicted.</p>
+ *
+ * <p>A {@link ClientProxyClassCache} may optionally be {@linkplain #ClientProxyClassCache(int, Path) backed by a
+ * directory} so that class files generated in one Java virtual machine may be reused, without any <a
+ * href="https://bytebuddy.net/#/">Byte Buddy</a> involvement, in later ones. Entries in such a directory are keyed and
+ * validated by structural fingerprint, which incorporates the generator version, so stale entries are never used. Stale,
+ * corrupt and unreadable entries are treated as misses and are replaced when the corresponding class file is
+ * regenerated. So that such a directory does not grow without bound, entries written by earlier generator versions,
+ * and entries that have gone unused for thirty days, are deleted the first time it is used.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson" target="_top">Laird Nelson</a>
+ *
+ * @see #shared()
+ *
+ * @see BBClientProxier
+ */
+public final class ClientProxyClassCache {
+
+
+  /*
+   * Static fields.
+   */
+
+
+  private static final ClientProxyClassCache shared = new ClientProxyClassCache(1024);
+
+
+  /*
+   * Instance fields.
+   */
+
+
+  private final int maximumSize;
+
+  private final ClientProxyClassDirectory directory; // nullable
+
+  private final ReentrantLock lock;
+
+  // @GuardedBy("lock")
+  private final LinkedHashMap<String, ClientProxyClassDefinition> map;
+
+  private final LongAdder hits;
+
+  private final LongAdder misses;
+
+  private final LongAdder evictions;
+
+  private final LongAdder persistentHits;
+
+
+  /*
+   * Constructors.
+   */
+
+
+  /**
+   * Creates a new {@link ClientProxyClassCache}.
+   *
+   * @param maximumSize the maximum number of {@link ClientProxyClassDefinition}s this {@link ClientProxyClassCache}
+   * will hold; must be greater than or equal to {@code 0}
+   *
+   * @exception IllegalArgumentException if {@code maximumSize} is less than {@code 0}
+   *
+   * @see #ClientProxyClassCache(int, Path)
+   */
+  public ClientProxyClassCache(final int maximumSize) {
+    this(maximumSize, null);
+  }
+
+  /**
+   * Creates a new {@link ClientProxyClassCache}.
+   *
+   * @param maximumSize the maximum number of {@link ClientProxyClassDefinition}s this {@link ClientProxyClassCache}
+   * will hold in memory; must be greater than or equal to {@code 0}
+   *
+   * @param directory a {@link Path} identifying a directory in which {@link ClientProxyClassDefinition}s will be
+   * persistently stored; may be {@code null} in which case no persistent storage will be used; need not exist
+   *
+   * @exception IllegalArgumentException if {@code maximumSize} is less than {@code 0}
+   */
+  public ClientProxyClassCache(final int maximumSize, final Path directory) {
+    super();
+    if (maximumSize < 0) {
+      throw new IllegalArgumentException("maximumSize: " + maximumSize);
+    }
+    this.maximumSize = maximumSize;
+    this.directory = directory == null ? null : new ClientProxyClassDirectory(directory);
+    this.lock = new ReentrantLock(); // not synchronized, so virtual threads are not pinned
+    this.map = new LinkedHashMap<>(16, 0.75f, true) { // access order
+        private static final long serialVersionUID = 1L;
+        @Override // LinkedHashMap<String, ClientProxyClassDefinition>
+        protected final boolean removeEldestEntry(final Map.Entry<String, ClientProxyClassDefinition> eldest) {
+          if (this.size() > maximumSize) {
+            evictions.increment();
+            return true;
+          }
+          return false;
+        }
+      };
+    this.hits = new LongAdder();
+    this.misses = new LongAdder();
+    this.evictions = new LongAdder();
+    this.persistentHits = new LongAdder();
+  }
+
+
+  /*
+   * Instance methods.
+   */
+
+
+  /**
+   * Returns the {@link ClientProxyClassDefinition} indexed under the supplied structural fingerprint, or {@code null}
+   * if there is no such {@link ClientProxyClassDefinition}.
+   *
+   * <p>If this {@link ClientProxyClassCache} is backed by a directory, and no suitable {@link
+   * ClientProxyClassDefinition} is held in memory, the directory is consulted.</p>
+   *
+   * <p>Each invocation of this method increments either the {@linkplain #hits() hit count} or the {@linkplain #misses()
+   * miss count}.</p>
+   *
+   * @param fingerprint a structural fingerprint; must not be {@code null}
+   *
+   * @return the {@link ClientProxyClassDefinition} indexed under the supplied structural fingerprint, or {@code null}
+   *
+   * @exception NullPointerException if {@code fingerprint} is {@code null}
+   */
+  public final ClientProxyClassDefinition get(final String fingerprint) {
+    Objects.requireNonNull(fingerprint, "fingerprint");
+    ClientProxyClassDefinition d;
+    this.lock.lock();
+    try {
+      d = this.map.get(fingerprint);
+    } finally {
+      this.lock.unlock();
+    }
+    if (d == null && this.directory != null) {
+      d = this.directory.load(fingerprint); // deliberately not under lock
+      if (d != null) {
+        this.persistentHits.increment();
+        this.lock.lock();
+        try {
+          this.map.putIfAbsent(fingerprint, d);
+        } finally {
+          this.lock.unlock();
+        }
+      }
+    }
+    (d == null ? this.misses : this.hits).increment();
+    return d;
+  }
+
+  /**
+   * Indexes the supplied {@link ClientProxyClassDefinition} under the supplied structural fingerprint, possibly evicting
+   * the least recently used {@link ClientProxyClassDefinition}, and returns the {@link ClientProxyClassDefinition} that
+   * was previously so indexed in memory, or {@code null} if there was no such {@link ClientProxyClassDefinition}.
+   *
+   * <p>If this {@link ClientProxyClassCache} is backed by a directory, the supplied {@link ClientProxyClassDefinition}
+   * is also stored there. Failures to store it are logged and otherwise ignored.</p>
+   *
+   * @param fingerprint a structural fingerprint; must not be {@code null}
+   *
+   * @param d a {@link ClientProxyClassDefinition}; must not be {@code null}
+   *
+   * @return the {@link ClientProxyClassDefinition} previously indexed under the supplied structural fingerprint, or
+   * {@code null}
+   *
+   * @exception NullPointerException if any argument is {@code null}
+   */
+  public final ClientProxyClassDefinition put(final String fingerprint, final ClientProxyClassDefinition d) {
+    Objects.requireNonNull(fingerprint, "fingerprint");
+    Objects.requireNonNull(d, "d");
+    final ClientProxyClassDefinition old;
+    this.lock.lock();
+    try {
+      old = this.map.put(fingerprint, d);
+    } finally {
+      this.lock.unlock();
+    }
+    if (this.directory != null && !d.equals(old)) {
+      this.directory.store(fingerprint, d); // deliberately not under lock
+    }
+    return old;
+  }
+
+  /**
+   * Returns an immutable snapshot of the {@link ClientProxyClassDefinition}s currently held in this {@link
+   * ClientProxyClassCache}'s memory.
+   *
+   * <p>Retrieving the snapshot does not affect recency of use.</p>
+   *
+   * @return a non-{@code null}, immutable {@link List} of {@link ClientProxyClassDefinition}s
+   *
+   * @see ClientProxyClassArchive#write(Path, java.util.Collection)
+   */
+  public final List<ClientProxyClassDefinition> definitions() {
+    this.lock.lock();
+    try {
+      return List.copyOf(this.map.values());
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  /**
+   * Removes all {@link ClientProxyClassDefinition}s from this {@link ClientProxyClassCache}'s memory.
+   *
+   * <p>Statistics are not reset, and persistently stored {@link ClientProxyClassDefinition}s are not removed.</p>
+   */
+  public final void clear() {
+    this.lock.lock();
+    try {
+      this.map.clear();
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of {@link ClientProxyClassDefinition}s currently held by this {@link ClientProxyClassCache}.
+   *
+   * @return the number of {@link ClientProxyClassDefinition}s currently held by this {@link ClientProxyClassCache}
+   */
+  public final int size() {
+    this.lock.lock();
+    try {
+      return this.map.size();
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the maximum number of {@link ClientProxyClassDefinition}s this {@link ClientProxyClassCache} will hold.
+   *
+   * @return the maximum number of {@link ClientProxyClassDefinition}s this {@link ClientProxyClassCache} will hold
+   */
+  public final int maximumSize() {
+    return this.maximumSize;
+  }
+
+  /**
+   * Returns the number of times the {@link #get(String)} method has found a {@link ClientProxyClassDefinition}.
+   *
+   * @return the number of cache hits
+   */
+  public final long hits() {
+    return this.hits.sum();
+  }
+
+  /**
+   * Returns the number of times the {@link #get(String)} method has not found a {@link ClientProxyClassDefinition}.
+   *
+   * @return the number of cache misses
+   */
+  public final long misses() {
+    return this.misses.sum();
+  }
+
+  /**
+   * Returns the number of times the {@link #get(String)} method has found a {@link ClientProxyClassDefinition} in this
+   * {@link ClientProxyClassCache}'s backing directory.
+   *
+   * <p>Persistent hits are included in the {@linkplain #hits() hit count}.</p>
+   *
+   * @return the number of persistent cache hits
+   */
+  public final long persistentHits() {
+    return this.persistentHits.sum();
+  }
+
+  /**
+   * Returns the {@link Path} identifying the directory backing this {@link ClientProxyClassCache}, or {@code null} if
+   * this {@link ClientProxyClassCache} is not backed by a directory.
+   *
+   * @return a {@link Path}, or {@code null}
+   */
+  public final Path directory() {
+    return this.directory == null ? null : this.directory.directory();
+  }
+
+  /**
+   * Returns the number of {@link ClientProxyClassDefinition}s that have been evicted from this {@link
+   * ClientProxyClassCache} to keep its size at or below its {@linkplain #maximumSize() maximum size}.
+   *
+   * @return the number of evictions
+   */
+  public final long evictions() {
+    return this.evictions.sum();
+  }
+
+  /**
+   * Returns a {@link String} representation of this {@link ClientProxyClassCache}.
+   *
+   * @return a non-{@code null} {@link String} representation of this {@link ClientProxyClassCache}
+   */
+  @Override // Object
+  public final String toString() {
+    return
+      this.getClass().getSimpleName() +
+      "[size=" + this.size() +
+      ", maximumSize=" + this.maximumSize +
+      ", directory=" + this.directory() +
+      ", hits=" + this.hits() +
+      ", persistentHits=" + this.persistentHits() +
+      ", misses=" + this.misses() +
+      ", evictions=" + this.evictions() +
+      "]";
+  }
+
+
+  /*
+   * Static methods.
+   */
+
+
+  /**
+   * Returns the {@link ClientProxyClassCache} shared by default among all {@link BBClientProxier}s in the current Java
+   * virtual machine.
+   *
+   * @return the non-{@code null} shared {@link ClientProxyClassCache}
+   *
+   * @see BBClientProxier#BBClientProxier(org.microbean.construct.Domain, TypeDefinitions, BBClientProxyClassGenerator)
+   */
+  public static final ClientProxyClassCache shared() {
+    return shared;
+  }
+
+}
@@ -0,0 +1,248 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2025 microBean™.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.microbean.clientproxy.bytebuddy;
+
+import java.io.IOException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import net.bytebuddy.dynamic.DynamicType;
+
+import net.bytebuddy.jar.asm.ClassReader;
+
+/**
+ * An immutable description of a generated {@linkplain org.microbean.reference.ClientProxy client proxy} class in a form
+ * that can be defined without further involvement from <a href="https://bytebuddy.net/#/">Byte Buddy</a>.
+ *
+ * @param name the <a
+ * href="https://docs.oracle.com/en/java/javase/24/docs/api/java.base/java/lang/ClassLoader.html#binary-name">binary
+ * name</a> of the client proxy class; must not be {@code null}
+ *
+ * @param superclassName the binary name of the client proxy class' superclass; must not be {@code null}
+ *
+ * @param bytes the class file bytes of the client proxy class; must not be {@code null}; will be cloned
+ *
+ * @author <a href="https://about.me/lairdnelson" target="_top">Laird Nelson</a>
+ *
+ * @see BBClientProxier
+ *
+ * @see ClientProxyClassCache
+ */
+public record ClientProxyClassDefinition(String name, String superclassName, byte[] bytes) {
+
+  /**
+   * Creates a new {@link ClientProxyClassDefinition}.
+   *
+   * @param name the <a
+   * href="https://docs.oracle.com/en/java/javase/24/docs/api/java.base/java/lang/ClassLoader.html#binary-name">binary
+   * name</a> of the client proxy class; must not be {@code null}
+   *
+   * @param superclassName the binary name of the client proxy class' superclass; must not be {@code null}
+   *
+   * @param bytes the class file bytes of the client proxy class; must not be {@code null}; will be cloned
+   *
+   * @exception NullPointerException if any argument is {@code null}
+   */
+  public ClientProxyClassDefinition {
+    Objects.requireNonNull(name, "name");
+    Objects.requireNonNull(superclassName, "superclassName");
+    bytes = bytes.clone();
+  }
+
+  /**
+   * Returns a copy of the class file bytes of the client proxy class.
+   *
+   * @return a non-{@code null} copy of the class file bytes of the client proxy class
+   */
+  @Override // Record
+  public final byte[] bytes() {
+    return this.bytes.clone();
+  }
+
+  /**
+   * Returns the size, in bytes, of the client proxy class' class file.
+   *
+   * @return the size, in bytes, of the client proxy class' class file
+   */
+  public final int size() {
+    return this.bytes.length;
+  }
+
+  /**
+   * Returns an immutable {@link Map} of the sizes, in bytes, of the bytecode of each method of the client proxy class
+   * that has any, indexed by the method's name followed by its descriptor (for example, {@code
+   * $proxied()Ljava/lang/Object;}), in class file order.
+   *
+   * <p>The Java Virtual Machine compiles methods whose bytecode is small enough into their callers. HotSpot, for
+   * example, inlines methods of at most 35 bytes ({@code -XX:MaxInlineSize}) at any call site, and methods of at most
+   * 325 bytes ({@code -XX:FreqInlineSize}) at frequently executed ones. This method can be used to confirm that the
+   * methods of a client proxy class are within such limits.</p>
+   *
+   * @return a non-{@code null}, immutable {@link Map} of bytecode sizes indexed by method name and descriptor
+   *
+   * @exception IllegalArgumentException if the class file bytes are malformed
+   */
+  public final Map<String, Integer> codeSizes() {
+    final Map<String, Integer> m = new LinkedHashMap<>();
+    final ClassReader cr;
+    try {
+      cr = new ClassReader(this.bytes);
+    } catch (final RuntimeException e) {
+      throw new IllegalArgumentException(e.getMessage(), e);
+    }
+    final char[] buffer = new char[cr.getMaxStringLength()];
+    int offset = cr.header + 6; // access_flags, this_class, super_class
+    offset += 2 + 2 * cr.readUnsignedShort(offset); // interfaces
+    int count = cr.readUnsignedShort(offset); // fields
+    offset += 2;
+    for (int i = 0; i < count; i++) {
+      offset = skipAttributes(cr, offset + 6); // access_flags, name_index, descriptor_index
+    }
+    count = cr.readUnsignedShort(offset); // methods
+    offset += 2;
+    for (int i = 0; i < count; i++) {
+      final String method = cr.readUTF8(offset + 2, buffer) + cr.readUTF8(offset + 4, buffer);
+      offset += 6;
+      final int attributesCount = cr.readUnsignedShort(offset);
+      offset += 2;
+      for (int j = 0; j < attributesCount; j++) {
+        if ("Code".equals(cr.readUTF8(offset, buffer))) {
+          m.put(method, cr.readInt(offset + 10)); // attribute_name_index, attribute_length, max_stack, max_locals
+        }
+        offset += 6 + cr.readInt(offset + 2);
+      }
+    }
+    return Collections.unmodifiableMap(m);
+  }
+
+  /**
+   * Writes the class file bytes of the client proxy class into the appropriate location beneath the supplied directory
+   * so that, if that directory is on the class path, the client proxy class can be loaded by name, and returns the
+   * {@link Path} of the class file written.
+   *
+   * <p>This is typically used at build time to generate client proxy classes ahead of time into a project's output
+   * directory (such as {@code target/classes}).</p>
+   *
+   * @param directory a {@link Path} identifying a root directory; must not be {@code null}; need not exist
+   *
+   * @return the non-{@code null} {@link Path} of the class file that was written
+   *
+   * @exception NullPointerException if {@code directory} is {@code null}
+   *
+   * @exception IOException if an input or output error occurs
+   *
+   * @see BBClientProxier#definition(org.microbean.reference.ProxySpecification)
+   */
+  public final Path saveIn(final Path directory) throws IOException {
+    final Path file = directory.resolve(this.name.replace('.', '/') + ".class");
+    Files.createDirectories(file.getParent());
+    return Files.write(file, this.bytes);
+  }
+
+  /**
+   * Returns a hash code for this {@link ClientProxyClassDefinition}.
+   *
+   * @return a hash code for this {@link ClientProxyClassDefinition}
+   */
+  @Override // Record
+  public final int hashCode() {
+    return this.name.hashCode(); // the bytes are a function of the name and the structure it was generated from
+  }
+
+  /**
+   * Returns {@code true} if the supplied {@link Object} is equal to this {@link ClientProxyClassDefinition}.
+   *
+   * @param other an {@link Object}; may be {@code null}
+   *
+   * @return {@code true} if the supplied {@link Object} is equal to this {@link ClientProxyClassDefinition}
+   */
+  @Override // Record
+  public final boolean equals(final Object other) {
+    if (other == this) {
+      return true;
+    } else if (other != null && other.getClass() == this.getClass()) {
+      final ClientProxyClassDefinition her = (ClientProxyClassDefinition)other;
+      return
+        this.name.equals(her.name) &&
+        this.superclassName.equals(her.superclassName) &&
+        Arrays.equals(this.bytes, her.bytes);
+    } else {
+      return false;
+    }
+  }
+
+  /**
+   * Returns a {@link String} representation of this {@link ClientProxyClassDefinition}.
+   *
+   * @return a non-{@code null} {@link String} representation of this {@link ClientProxyClassDefinition}
+   */
+  @Override // Record
+  public final String toString() {
+    return this.getClass().getSimpleName() + "[name=" + this.name + ", superclassName=" + this.superclassName + ", size=" + this.bytes.length + "]";
+  }
+
+
+  /*
+   * Static methods.
+   */
+
+
+  /**
+   * Returns a new {@link ClientProxyClassDefinition} describing the supplied {@link DynamicType.Unloaded}.
+   *
+   * @param dtu a {@link DynamicType.Unloaded} produced by a {@link BBClientProxyClassGenerator}; must not be {@code
+   * null}
+   *
+   * @return a new, non-{@code null} {@link ClientProxyClassDefinition}
+   *
+   * @exception NullPointerException if {@code dtu} is {@code null}
+   *
+   * @exception IllegalArgumentException if {@code dtu} has auxiliary types or live loaded type initializers, neither of
+   * which can be represented by a {@link ClientProxyClassDefinition}
+   *
+   * @see BBClientProxyClassGenerator#generate(String, net.bytebuddy.description.type.TypeDefinition,
+   * java.util.Collection)
+   */
+  public static final ClientProxyClassDefinition of(final DynamicType.Unloaded<?> dtu) {
+    // Client proxy classes as generated by BBClientProxyClassGenerator are self-contained: no auxiliary types, no static
+    // state injected after loading.
+    if (!dtu.getAuxiliaryTypes().isEmpty() || dtu.hasAliveLoadedTypeInitializers()) {
+      throw new IllegalArgumentException("dtu: " + dtu);
+    }
+    // getTypeName() invoked on a TypeDescription will be its binary name (required by Class#forName(String)):
+    // https://javadoc.io/static/net.bytebuddy/byte-buddy/1.17.3/net/bytebuddy/description/type/TypeDefinition.html#getTypeName--
+    return
+      new ClientProxyClassDefinition(dtu.getTypeDescription().getName(),
+                                     dtu.getTypeDescription().getSuperClass().asErasure().getTypeName(),
+                                     dtu.getBytes());
+  }
+
+  // Returns the offset just past the attributes that begin at the supplied offset.
+  private static final int skipAttributes(final ClassReader cr, int offset) {
+    final int count = cr.readUnsignedShort(offset);
+    offset += 2;
+    for (int i = 0; i < count; i++) {
+      offset += 6 + cr.readInt(offset + 2); // attribute_name_index, attribute_length, info
+    }
+    return offset;
+  }
+
+}
@@ -0,0 +1,334 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2025 microBean™.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.microbean.clientproxy.bytebuddy;
+
+import java.io.IOException;
+
+import java.lang.System.Logger;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import java.nio.channels.FileChannel;
+
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+import java.nio.file.attribute.FileTime;
+
+import java.security.MessageDigest;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.lang.System.Logger.Level.DEBUG;
+import static java.lang.System.Logger.Level.WARNING;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * A directory of persistent {@link ClientProxyClassDefinition}s, one file per structural fingerprint.
+ *
+ * <p>Each file consists of a magic number, a format version, the version of the {@link BBClientProxyClassGenerator}
+ * that generated it, the structural fingerprint it was stored under, the client proxy class name, its superclass name,
+ * its class file bytes, and a SHA-256 digest of all of the preceding data. A file whose stored fingerprint does not
+ * match the fingerprint it is being loaded under is stale, and a file that cannot be parsed or whose digest does not
+ * match its contents is corrupt; in either case {@link #load(String)} returns {@code null} so that the caller can fall
+ * back to generation, and the next {@link #store(String, ClientProxyClassDefinition)} replaces it.</p>
+ *
+ * <p>Because a changed superclass or generator yields a new fingerprint, and so a new file, files that will never be
+ * loaded again accumulate. The first time a {@link ClientProxyClassDirectory} is used, it therefore {@linkplain
+ * #prune() prunes} files written in an earlier format or by an earlier generator version, files it cannot parse, and
+ * files that have not been loaded or stored for thirty days. Loading a file counts as using it.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson" target="_top">Laird Nelson</a>
+ *
+ * @see ClientProxyClassCache#ClientProxyClassCache(int, Path)
+ */
+final class ClientProxyClassDirectory {
+
+
+  /*
+   * Static fields.
+   */
+
+
+  private static final Logger LOGGER = System.getLogger(ClientProxyClassDirectory.class.getName());
+
+  private static final int MAGIC = 0x4D42_4350; // "MBCP"
+
+  private static final int FORMAT_VERSION = 2;
+
+  // Files, including temporary files, not used for this long are pruned.
+  private static final Duration MAXIMUM_AGE = Duration.ofDays(30);
+
+  private static final int DIGEST_LENGTH = 32; // SHA-256
+
+  private static final String SUFFIX = ".cpc";
+
+  private static final String TEMP_SUFFIX = ".tmp";
+
+
+  /*
+   * Instance fields.
+   */
+
+
+  private final Path directory;
+
+  private final AtomicBoolean pruned;
+
+
+  /*
+   * Constructors.
+   */
+
+
+  ClientProxyClassDirectory(final Path directory) {
+    super();
+    this.directory = Objects.requireNonNull(directory, "directory");
+    this.pruned = new AtomicBoolean();
+  }
+
+
+  /*
+   * Instance methods.
+   */
+
+
+  final Path directory() {
+    return this.directory;
+  }
+
+  /**
+   * Returns the {@link ClientProxyClassDefinition} stored under the supplied structural fingerprint, or {@code null}
+   * if there is no such definition or if it is stale or corrupt.
+   *
+   * @param fingerprint a structural fingerprint; must not be {@code null}
+   *
+   * @return a {@link ClientProxyClassDefinition}, or {@code null}
+   *
+   * @exception NullPointerException if {@code fingerprint} is {@code null}
+   */
+  final ClientProxyClassDefinition load(final String fingerprint) {
+    this.pruneOnce();
+    final Path file = this.file(fingerprint);
+    final ByteBuffer b;
+    try (final FileChannel fc = FileChannel.open(file, READ)) {
+      b = fc.map(FileChannel.MapMode.READ_ONLY, 0L, fc.size());
+    } catch (final NoSuchFileException e) {
+      return null;
+    } catch (final IOException e) {
+      LOGGER.log(WARNING, "Could not read " + file, e);
+      return null;
+    }
+    try {
+      if (b.getInt() != MAGIC || b.getInt() != FORMAT_VERSION || b.getInt() != BBClientProxyClassGenerator.VERSION) {
+        LOGGER.log(WARNING, "Ignoring corrupt client proxy class file: " + file);
+        return null;
+      }
+      final String storedFingerprint = string(b);
+      final String name = string(b);
+      final String superclassName = string(b);
+      final byte[] bytes = bytes(b);
+      final int contentLength = b.position();
+      final byte[] storedDigest = new byte[DIGEST_LENGTH];
+      b.get(storedDigest);
+      final MessageDigest md = Fingerprints.sha256();
+      md.update(b.duplicate().position(0).limit(contentLength));
+      if (!Arrays.equals(storedDigest, md.digest())) {
+        LOGGER.log(WARNING, "Ignoring corrupt client proxy class file: " + file);
+        return null;
+      }
+      if (!storedFingerprint.equals(fingerprint)) {
+        LOGGER.log(DEBUG, "Ignoring stale client proxy class file: " + file);
+        return null;
+      }
+      touch(file);
+      return new ClientProxyClassDefinition(name, superclassName, bytes);
+    } catch (final BufferUnderflowException | IllegalArgumentException e) {
+      LOGGER.log(WARNING, "Ignoring corrupt client proxy class file: " + file, e);
+      return null;
+    }
+  }
+
+  /**
+   * Stores the supplied {@link ClientProxyClassDefinition} under the supplied structural fingerprint, atomically
+   * replacing any existing file.
+   *
+   * <p>Failures are logged and otherwise ignored, since a missing file merely causes a later generation.</p>
+   *
+   * @param fingerprint a structural fingerprint; must not be {@code null}
+   *
+   * @param d a {@link ClientProxyClassDefinition}; must not be {@code null}
+   *
+   * @exception NullPointerException if any argument is {@code null}
+   */
+  final void store(final String fingerprint, final ClientProxyClassDefinition d) {
+    this.pruneOnce();
+    final Path file = this.file(fingerprint);
+    final byte[] fingerprintBytes = fingerprint.getBytes(UTF_8);
+    final byte[] nameBytes = d.name().getBytes(UTF_8);
+    final byte[] superclassNameBytes = d.superclassName().getBytes(UTF_8);
+    final byte[] bytes = d.bytes();
+    final ByteBuffer b =
+      ByteBuffer.allocate(Integer.BYTES * 7 +
+                          fingerprintBytes.length +
+                          nameBytes.length +
+                          superclassNameBytes.length +
+                          bytes.length +
+                          DIGEST_LENGTH);
+    b.putInt(MAGIC)
+      .putInt(FORMAT_VERSION)
+      .putInt(BBClientProxyClassGenerator.VERSION)
+      .putInt(fingerprintBytes.length).put(fingerprintBytes)
+      .putInt(nameBytes.length).put(nameBytes)
+      .putInt(superclassNameBytes.length).put(superclassNameBytes)
+      .putInt(bytes.length).put(bytes);
+    final MessageDigest md = Fingerprints.sha256();
+    md.update(b.array(), 0, b.position());
+    b.put(md.digest());
+    Path temp = null;
+    try {
+      Files.createDirectories(this.directory);
+      temp = Files.createTempFile(this.directory, fingerprint, TEMP_SUFFIX);
+      Files.write(temp, b.array());
+      try {
+        Files.move(temp, file, ATOMIC_MOVE, REPLACE_EXISTING);
+      } catch (final AtomicMoveNotSupportedException e) {
+        Files.move(temp, file, REPLACE_EXISTING);
+      }
+    } catch (final IOException e) {
+      LOGGER.log(WARNING, "Could not write " + file, e);
+      if (temp != null) {
+        try {
+          Files.deleteIfExists(temp);
+        } catch (final IOException e2) {
+          e.addSuppressed(e2);
+        }
+      }
+    }
+  }
+
+  /**
+   * Deletes files in this {@link ClientProxyClassDirectory} that will never be loaded: those written in an earlier
+   * format or by an earlier {@link BBClientProxyClassGenerator} version, those that cannot be parsed, and those,
+   * including temporary files left behind by interrupted {@linkplain #store(String, ClientProxyClassDefinition)
+   * stores}, that have not been used for thirty days.
+   *
+   * <p>Files written in a later format or by a later generator version, such as by another version of an application
+   * sharing this directory, are left alone until they, too, go unused for thirty days.</p>
+   *
+   * <p>Failures are logged and otherwise ignored.</p>
+   */
+  final void prune() {
+    final FileTime cutoff = FileTime.from(Instant.now().minus(MAXIMUM_AGE));
+    try (final DirectoryStream<Path> ds = Files.newDirectoryStream(this.directory)) {
+      for (final Path file : ds) {
+        final String fileName = file.getFileName().toString();
+        try {
+          final boolean stale;
+          if (fileName.endsWith(SUFFIX)) {
+            stale = Files.getLastModifiedTime(file).compareTo(cutoff) < 0 || obsolete(file);
+          } else if (fileName.endsWith(TEMP_SUFFIX)) {
+            stale = Files.getLastModifiedTime(file).compareTo(cutoff) < 0;
+          } else {
+            continue; // not ours
+          }
+          if (stale) {
+            Files.deleteIfExists(file);
+            LOGGER.log(DEBUG, "Deleted stale client proxy class file: " + file);
+          }
+        } catch (final NoSuchFileException e) {
+          // Deleted or replaced concurrently; fine.
+        } catch (final IOException e) {
+          LOGGER.log(WARNING, "Could not prune " + file, e);
+        }
+      }
+    } catch (final NoSuchFileException e) {
+      // Nothing stored yet.
+    } catch (final IOException e) {
+      LOGGER.log(WARNING, "Could not prune " + this.directory, e);
+    }
+  }
+
+  private final void pruneOnce() {
+    if (!this.pruned.getAndSet(true)) {
+      this.prune();
+    }
+  }
+
+  private final Path file(final String fingerprint) {
+    return this.directory.resolve(fingerprint + SUFFIX);
+  }
+
+
+  /*
+   * Static methods.
+   */
+
+
+  // Returns true if the supplied file was written in an earlier format or by an earlier generator version, or is not a
+  // client proxy class file at all. Only its header is read.
+  private static final boolean obsolete(final Path file) throws IOException {
+    final ByteBuffer b = ByteBuffer.allocate(Integer.BYTES * 3);
+    try (final FileChannel fc = FileChannel.open(file, READ)) {
+      while (b.hasRemaining() && fc.read(b) >= 0) {}
+    }
+    if (b.flip().remaining() < Integer.BYTES * 3 || b.getInt() != MAGIC) {
+      return true;
+    }
+    final int formatVersion = b.getInt();
+    return
+      formatVersion < FORMAT_VERSION ||
+      formatVersion == FORMAT_VERSION && b.getInt() < BBClientProxyClassGenerator.VERSION;
+  }
+
+  private static final String string(final ByteBuffer b) {
+    return new String(bytes(b), UTF_8);
+  }
+
+  private static final byte[] bytes(final ByteBuffer b) {
+    final int length = b.getInt();
+    if (length < 0 || length > b.remaining()) {
+      throw new IllegalArgumentException("length: " + length);
+    }
+    final byte[] bytes = new byte[length];
+    b.get(bytes);
+    return bytes;
+  }
+
+  // Records that the supplied file has been used, so that it is not pruned.
+  private static final void touch(final Path file) {
+    try {
+      Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+    } catch (final IOException e) {
+      LOGGER.log(DEBUG, "Could not touch " + file, e);
+    }
+  }
+
+}
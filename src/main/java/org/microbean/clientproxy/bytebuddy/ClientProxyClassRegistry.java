@@ -0,0 +1,152 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2025 microBean™.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.microbean.clientproxy.bytebuddy;
+
+import java.lang.ref.WeakReference;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A thread-safe registry of client proxy classes indexed by the {@link ClassLoader} through which they were requested
+ * and by name, that keeps neither the client proxy classes nor their {@link ClassLoader}s reachable.
+ *
+ * <p>A client proxy class registered here remains registered exactly as long as it, and the {@link ClassLoader} with
+ * which it was registered, would otherwise remain loaded. When an application's {@link ClassLoader} becomes unreachable,
+ * for example because the application was redeployed, the client proxy classes registered with it are unloaded along
+ * with it.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson" target="_top">Laird Nelson</a>
+ *
+ * @see BBClientProxier
+ */
+final class ClientProxyClassRegistry {
+
+  private final ReentrantLock lock;
+
+  // Keys are weakly reachable. Values, which refer to client proxy classes, and hence to their defining ClassLoaders,
+  // which will often be the keys, refer to them only weakly, so no key is ever strongly reachable from a value.
+  //
+  // @GuardedBy("lock")
+  private final WeakHashMap<ClassLoader, Map<String, WeakReference<Class<?>>>> map;
+
+  /**
+   * Creates a new {@link ClientProxyClassRegistry}.
+   */
+  ClientProxyClassRegistry() {
+    super();
+    this.lock = new ReentrantLock(); // not synchronized, so virtual threads are not pinned
+    this.map = new WeakHashMap<>();
+  }
+
+  /**
+   * Returns the client proxy class registered under the supplied name for the supplied {@link ClassLoader}, or {@code
+   * null} if there is no such client proxy class or it has been unloaded.
+   *
+   * @param cl a {@link ClassLoader}; may be {@code null}
+   *
+   * @param name the name of a client proxy class; must not be {@code null}
+   *
+   * @return the client proxy class registered under the supplied name for the supplied {@link ClassLoader}, or {@code
+   * null}
+   *
+   * @exception NullPointerException if {@code name} is {@code null}
+   */
+  final Class<?> get(final ClassLoader cl, final String name) {
+    final WeakReference<Class<?>> r;
+    this.lock.lock();
+    try {
+      final Map<String, WeakReference<Class<?>>> m = this.map.get(cl);
+      r = m == null ? null : m.get(name);
+    } finally {
+      this.lock.unlock();
+    }
+    return r == null ? null : r.get();
+  }
+
+  /**
+   * Registers the supplied client proxy class under the supplied name for the supplied {@link ClassLoader}, replacing
+   * any client proxy class already so registered.
+   *
+   * @param cl a {@link ClassLoader}; may be {@code null}
+   *
+   * @param name the name of a client proxy class; must not be {@code null}
+   *
+   * @param c the client proxy class; must not be {@code null}
+   *
+   * @exception NullPointerException if {@code name} or {@code c} is {@code null}
+   */
+  final void put(final ClassLoader cl, final String name, final Class<?> c) {
+    final WeakReference<Class<?>> r = new WeakReference<>(c);
+    this.lock.lock();
+    try {
+      this.map.computeIfAbsent(cl, x -> new HashMap<>()).put(name, r);
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of registered client proxy classes that have not been unloaded, discarding any that have.
+   *
+   * @return the number of registered client proxy classes that have not been unloaded; always {@code 0} or greater
+   */
+  final int size() {
+    int size = 0;
+    this.lock.lock();
+    try {
+      final Iterator<Map<String, WeakReference<Class<?>>>> i = this.map.values().iterator();
+      while (i.hasNext()) {
+        final Map<String, WeakReference<Class<?>>> m = i.next();
+        size += expunge(m);
+        if (m.isEmpty()) {
+          i.remove();
+        }
+      }
+    } finally {
+      this.lock.unlock();
+    }
+    return size;
+  }
+
+  /**
+   * Returns the number of client proxy classes registered for the supplied {@link ClassLoader} that have not been
+   * unloaded, discarding any that have.
+   *
+   * @param cl a {@link ClassLoader}; may be {@code null}
+   *
+   * @return the number of client proxy classes registered for the supplied {@link ClassLoader} that have not been
+   * unloaded; always {@code 0} or greater
+   */
+  final int size(final ClassLoader cl) {
+    this.lock.lock();
+    try {
+      final Map<String, WeakReference<Class<?>>> m = this.map.get(cl);
+      return m == null ? 0 : expunge(m);
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  // Removes entries for unloaded client proxy classes from the supplied Map and returns the number remaining.
+  private static final int expunge(final Map<String, WeakReference<Class<?>>> m) {
+    m.values().removeIf(r -> r.get() == null);
+    return m.size();
+  }
+
+}
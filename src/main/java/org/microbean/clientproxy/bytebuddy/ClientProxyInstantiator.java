@@ -0,0 +1,142 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2025 microBean™.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.microbean.clientproxy.bytebuddy;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+
+import java.util.Objects;
+
+import java.util.function.Supplier;
+
+import org.microbean.reference.ClientProxy;
+
+import sun.reflect.ReflectionFactory;
+
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * A utility class that creates instances of client proxy classes {@linkplain
+ * BBClientProxyClassGenerator.Option#CONSTRUCTORLESS generated without constructors}, without running any superclass
+ * constructor.
+ *
+ * <p>Instances are allocated in the same way that Java serialization allocates instances of serializable classes: only
+ * {@link Object}'s constructor is run. No field initializers, instance initializers or constructors of the client
+ * proxy class' superclass are run, so creating a client proxy for a bean class with an expensive constructor costs no
+ * more than creating one for any other bean class. The resulting instance's {@link Supplier} of contextual references
+ * is then set, and it is then ready for use.</p>
+ *
+ * <p>This class uses {@link ReflectionFactory}, so the {@code jdk.unsupported} module must be present.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson" target="_top">Laird Nelson</a>
+ *
+ * @see BBClientProxyClassGenerator.Option#CONSTRUCTORLESS
+ */
+public final class ClientProxyInstantiator {
+
+
+  /*
+   * Static fields.
+   */
+
+
+  private static final Lookup lookup = MethodHandles.lookup();
+
+  private static final ClassValue<Instantiator> instantiators = new ClassValue<>() {
+      @Override // ClassValue<Instantiator>
+      protected final Instantiator computeValue(final Class<?> c) {
+        if (!ClientProxy.class.isAssignableFrom(c)) {
+          throw new IllegalArgumentException("c: " + c);
+        }
+        try {
+          // Runs Object's constructor, and only Object's constructor, on a new instance of c.
+          final Constructor<?> allocator =
+            ReflectionFactory.getReflectionFactory().newConstructorForSerialization(c, Object.class.getDeclaredConstructor());
+          // (Unreflecting allocator would yield a MethodHandle that runs c's constructor, so it is used reflectively.)
+          return
+            new Instantiator(allocator,
+                             lookup.findVirtual(c, "$proxiedSupplier", methodType(void.class, Supplier.class))
+                             .asType(methodType(void.class, Object.class, Supplier.class)));
+        } catch (final IllegalAccessException | NoSuchMethodException e) {
+          throw new IllegalArgumentException("c: " + c, e);
+        }
+      }
+    };
+
+
+  /*
+   * Constructors.
+   */
+
+
+  private ClientProxyInstantiator() {
+    super();
+  }
+
+
+  /*
+   * Static methods.
+   */
+
+
+  /**
+   * Creates and returns a new instance of the supplied client proxy class, which must have been {@linkplain
+   * BBClientProxyClassGenerator.Option#CONSTRUCTORLESS generated without constructors}, without running any superclass
+   * constructor.
+   *
+   * @param <T> the type of the client proxy class
+   *
+   * @param c a client proxy class generated with {@link BBClientProxyClassGenerator.Option#CONSTRUCTORLESS}; must not
+   * be {@code null}
+   *
+   * @param proxiedSupplier the {@link Supplier} of contextual references the new client proxy will use; must not be
+   * {@code null}
+   *
+   * @return a new, non-{@code null} instance of {@code c}
+   *
+   * @exception NullPointerException if any argument is {@code null}
+   *
+   * @exception IllegalArgumentException if {@code c} is not a client proxy class generated with {@link
+   * BBClientProxyClassGenerator.Option#CONSTRUCTORLESS}, or is not accessible to this module
+   */
+  public static final <T> T instantiate(final Class<T> c, final Supplier<?> proxiedSupplier) {
+    Objects.requireNonNull(proxiedSupplier, "proxiedSupplier");
+    final Instantiator i = instantiators.get(c);
+    try {
+      final Object clientProxy = i.allocator().newInstance();
+      i.setter().invokeExact(clientProxy, proxiedSupplier);
+      return c.cast(clientProxy);
+    } catch (final InvocationTargetException e) {
+      throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+    } catch (final RuntimeException | Error e) {
+      throw e;
+    } catch (final Throwable e) {
+      throw new IllegalStateException(e.getMessage(), e);
+    }
+  }
+
+
+  /*
+   * Inner and nested classes.
+   */
+
+
+  // allocator runs only Object's constructor; setter: (Object, Supplier)void, calling $proxiedSupplier
+  private static final record Instantiator(Constructor<?> allocator, MethodHandle setter) {}
+
+}
@@ -0,0 +1,444 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2025 microBean™.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.microbean.clientproxy.bytebuddy;
+
+import java.io.IOException;
+
+import java.lang.System.Logger;
+
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.TypeVariable;
+import javax.lang.model.type.WildcardType;
+
+import org.microbean.construct.Domain;
+
+import org.microbean.reference.ProxySpecification;
+
+import static java.lang.System.Logger.Level.WARNING;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * A compact, thread-safe record of the client proxy classes a {@link BBClientProxier} generated during a <dfn>training
+ * run</dfn>, suitable for {@linkplain #write(Path) writing} to a file, {@linkplain #read(Path) reading} on a later
+ * start, and {@linkplain BBClientProxier#preload(ClientProxyManifest, ClassLoader, java.util.concurrent.Executor)
+ * preloading} before traffic arrives.
+ *
+ * <p>A manifest file is a UTF-8 text file. Lines beginning with {@code #} are comments. Every other line describes one
+ * client proxy class as tab-separated fields: its name, the type of its superclass, and the types of its
+ * interfaces. Types are written in a compact Java-like syntax: declared types by canonical name with optional type
+ * arguments in angle brackets, array types with trailing {@code []}, type variables as {@code 'T}, and wildcards as
+ * {@code ?}, {@code ?+Bound} (upper bound) or {@code ?-Bound} (lower bound). Type variables are those of the
+ * superclass.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson" target="_top">Laird Nelson</a>
+ *
+ * @see BBClientProxier#BBClientProxier(org.microbean.construct.Domain, TypeDefinitions, BBClientProxyClassGenerator,
+ * ClientProxyClassCache, ClientProxyManifest)
+ */
+public final class ClientProxyManifest {
+
+
+  /*
+   * Static fields.
+   */
+
+
+  private static final Logger LOGGER = System.getLogger(ClientProxyManifest.class.getName());
+
+  private static final String HEADER = "# microBean™ Client Proxy: Byte Buddy manifest, version 1";
+
+
+  /*
+   * Instance fields.
+   */
+
+
+  private final ConcurrentMap<String, Entry> entries;
+
+
+  /*
+   * Constructors.
+   */
+
+
+  /**
+   * Creates a new, empty {@link ClientProxyManifest}.
+   */
+  public ClientProxyManifest() {
+    super();
+    this.entries = new ConcurrentHashMap<>();
+  }
+
+
+  /*
+   * Instance methods.
+   */
+
+
+  /**
+   * Records the client proxy class described by the supplied {@link ProxySpecification} in this {@link
+   * ClientProxyManifest}.
+   *
+   * <p>A {@link ProxySpecification} whose types cannot be represented in a manifest (for example, one with an interface
+   * that is a member of a parameterized type) is logged and otherwise ignored.</p>
+   *
+   * @param ps a {@link ProxySpecification}; must not be {@code null}
+   *
+   * @exception NullPointerException if {@code ps} is {@code null}
+   */
+  public final void record(final ProxySpecification ps) {
+    this.record(ps.name(), ps.superclass(), ps.interfaces());
+  }
+
+  final void record(final String name, final TypeMirror superclass, final List<? extends TypeMirror> interfaces) {
+    if (this.entries.containsKey(name)) {
+      return;
+    }
+    final Entry e;
+    try {
+      final List<String> is = new ArrayList<>(interfaces.size());
+      for (final TypeMirror i : interfaces) {
+        is.add(toString(i));
+      }
+      // The full superclass type, not just its erasure, so that the client proxy class it describes has the same
+      // fingerprint when it is preloaded.
+      e = new Entry(name, toString(superclass), is);
+    } catch (final IllegalArgumentException x) {
+      LOGGER.log(WARNING, "Not recording " + name, x);
+      return;
+    }
+    this.entries.putIfAbsent(name, e);
+  }
+
+  /**
+   * Returns an immutable snapshot of this {@link ClientProxyManifest}'s {@link Entry} instances, sorted by name.
+   *
+   * @return a non-{@code null}, immutable {@link List} of {@link Entry} instances
+   */
+  public final List<Entry> entries() {
+    final List<Entry> l = new ArrayList<>(this.entries.values());
+    l.sort(Comparator.comparing(Entry::name));
+    return List.copyOf(l);
+  }
+
+  /**
+   * Returns the number of client proxy classes recorded by this {@link ClientProxyManifest}.
+   *
+   * @return the number of client proxy classes recorded by this {@link ClientProxyManifest}
+   */
+  public final int size() {
+    return this.entries.size();
+  }
+
+  /**
+   * Writes this {@link ClientProxyManifest} to the file identified by the supplied {@link Path}, atomically replacing
+   * any existing file.
+   *
+   * @param file a {@link Path}; must not be {@code null}
+   *
+   * @exception NullPointerException if {@code file} is {@code null}
+   *
+   * @exception IOException if an input or output error occurs
+   *
+   * @see #read(Path)
+   */
+  public final void write(final Path file) throws IOException {
+    final List<String> lines = new ArrayList<>(this.size() + 1);
+    lines.add(HEADER);
+    for (final Entry e : this.entries()) {
+      lines.add(e.toString());
+    }
+    final Path parent = file.toAbsolutePath().getParent();
+    Files.createDirectories(parent);
+    final Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+    try {
+      Files.write(temp, lines, UTF_8);
+      try {
+        Files.move(temp, file, ATOMIC_MOVE, REPLACE_EXISTING);
+      } catch (final AtomicMoveNotSupportedException e) {
+        Files.move(temp, file, REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+
+  /*
+   * Static methods.
+   */
+
+
+  /**
+   * Reads a {@link ClientProxyManifest} from the file identified by the supplied {@link Path}.
+   *
+   * @param file a {@link Path}; must not be {@code null}
+   *
+   * @return a new, non-{@code null} {@link ClientProxyManifest}
+   *
+   * @exception NullPointerException if {@code file} is {@code null}
+   *
+   * @exception IOException if an input or output error occurs
+   *
+   * @exception IllegalArgumentException if the file is malformed
+   *
+   * @see #write(Path)
+   */
+  public static final ClientProxyManifest read(final Path file) throws IOException {
+    final ClientProxyManifest m = new ClientProxyManifest();
+    for (final String line : Files.readAllLines(file, UTF_8)) {
+      if (line.isBlank() || line.startsWith("#")) {
+        continue;
+      }
+      final String[] fields = line.split("\t");
+      if (fields.length < 2) {
+        throw new IllegalArgumentException("line: " + line);
+      }
+      final Entry e = new Entry(fields[0], fields[1], Arrays.asList(fields).subList(2, fields.length));
+      m.entries.put(e.name(), e);
+    }
+    return m;
+  }
+
+  static final String toString(final TypeMirror t) {
+    // Assumes t is thread safe, e.g. supplied via org.microbean.construct.Domain or similar
+    return switch (t.getKind()) {
+    case BOOLEAN, BYTE, CHAR, DOUBLE, FLOAT, INT, LONG, SHORT, VOID -> t.toString();
+    case ARRAY -> toString(((ArrayType)t).getComponentType()) + "[]";
+    case DECLARED -> {
+      final DeclaredType dt = (DeclaredType)t;
+      final TypeMirror enclosingType = dt.getEnclosingType();
+      if (enclosingType.getKind() == TypeKind.DECLARED && !((DeclaredType)enclosingType).getTypeArguments().isEmpty()) {
+        throw new IllegalArgumentException("t: " + t);
+      }
+      final String n = ((TypeElement)dt.asElement()).getQualifiedName().toString(); // canonical name, not binary name
+      final List<? extends TypeMirror> typeArguments = dt.getTypeArguments();
+      if (typeArguments.isEmpty()) {
+        yield n;
+      }
+      final StringBuilder sb = new StringBuilder(n).append('<');
+      for (int i = 0; i < typeArguments.size(); i++) {
+        if (i > 0) {
+          sb.append(',');
+        }
+        sb.append(toString(typeArguments.get(i)));
+      }
+      yield sb.append('>').toString();
+    }
+    case TYPEVAR -> "'" + ((TypeVariable)t).asElement().getSimpleName();
+    case WILDCARD -> {
+      final WildcardType w = (WildcardType)t;
+      final TypeMirror extendsBound = w.getExtendsBound();
+      final TypeMirror superBound = w.getSuperBound();
+      if (superBound != null) {
+        yield "?-" + toString(superBound);
+      } else if (extendsBound != null) {
+        yield "?+" + toString(extendsBound);
+      }
+      yield "?";
+    }
+    default -> throw new IllegalArgumentException("t: " + t + "; kind: " + t.getKind());
+    };
+  }
+
+  // Returns a TypeMirror for the supplied type in manifest syntax. Type variables are those of the supplied TypeElement
+  // or, if it is null, of the first declared type s names.
+  static final TypeMirror typeMirror(final String s, final Domain domain, final TypeElement context) {
+    final Parser p = new Parser(s, domain, context);
+    final TypeMirror t = p.type();
+    if (p.i != s.length()) {
+      throw new IllegalArgumentException("s: " + s);
+    }
+    return t;
+  }
+
+
+  /*
+   * Inner and nested classes.
+   */
+
+
+  /**
+   * A description of a client proxy class recorded by a {@link ClientProxyManifest}.
+   *
+   * @param name the name of the client proxy class; must not be {@code null}
+   *
+   * @param superclass the client proxy class' superclass type in {@linkplain ClientProxyManifest manifest syntax}; must
+   * not be {@code null}
+   *
+   * @param interfaces the client proxy class' interface types in {@linkplain ClientProxyManifest manifest syntax}; must
+   * not be {@code null}
+   *
+   * @author <a href="https://about.me/lairdnelson" target="_top">Laird Nelson</a>
+   */
+  public record Entry(String name, String superclass, List<String> interfaces) {
+
+    /**
+     * Creates a new {@link Entry}.
+     *
+     * @param name the name of the client proxy class; must not be {@code null}
+     *
+     * @param superclass the client proxy class' superclass type in {@linkplain ClientProxyManifest manifest syntax};
+     * must not be {@code null}
+     *
+     * @param interfaces the client proxy class' interface types in {@linkplain ClientProxyManifest manifest syntax};
+     * must not be {@code null}
+     *
+     * @exception NullPointerException if any argument is {@code null}
+     */
+    public Entry {
+      Objects.requireNonNull(name, "name");
+      Objects.requireNonNull(superclass, "superclass");
+      interfaces = List.copyOf(interfaces);
+    }
+
+    /**
+     * Returns a {@link String} representation of this {@link Entry} in {@linkplain ClientProxyManifest manifest
+     * syntax}.
+     *
+     * @return a non-{@code null} {@link String}
+     */
+    @Override // Record
+    public final String toString() {
+      final StringBuilder sb = new StringBuilder(this.name).append('\t').append(this.superclass);
+      for (final String i : this.interfaces) {
+        sb.append('\t').append(i);
+      }
+      return sb.toString();
+    }
+
+  }
+
+  // Parses types in manifest syntax into TypeMirrors, which TypeDefinitions then turns into Byte Buddy types exactly as
+  // it does for those of a ProxySpecification.
+  private static final class Parser {
+
+    private final String s;
+
+    private final Domain domain;
+
+    private TypeElement context; // declares the type variables
+
+    private int i;
+
+    private Parser(final String s, final Domain domain, final TypeElement context) {
+      super();
+      this.s = s;
+      this.domain = domain;
+      this.context = context;
+    }
+
+    private final TypeMirror type() {
+      TypeMirror t;
+      if (this.s.startsWith("?", this.i)) {
+        ++this.i;
+        if (this.s.startsWith("+", this.i)) {
+          ++this.i;
+          return this.domain.wildcardType(this.type(), null);
+        } else if (this.s.startsWith("-", this.i)) {
+          ++this.i;
+          return this.domain.wildcardType(null, this.type());
+        }
+        return this.domain.wildcardType(null, null);
+      } else if (this.s.startsWith("'", this.i)) {
+        ++this.i;
+        t = this.typeVariable(this.name());
+      } else {
+        final String n = this.name();
+        t = switch (n) {
+        case "boolean", "byte", "char", "double", "float", "int", "long", "short" ->
+          this.domain.primitiveType(TypeKind.valueOf(n.toUpperCase(Locale.ROOT)));
+        default -> {
+          final TypeElement te = this.domain.typeElement(n);
+          if (te == null) {
+            throw new IllegalArgumentException("s: " + this.s + "; unknown type: " + n);
+          }
+          if (this.context == null) {
+            this.context = te;
+          }
+          if (!this.s.startsWith("<", this.i)) {
+            yield this.domain.declaredType(te); // raw if te is generic
+          }
+          final List<TypeMirror> typeArguments = new ArrayList<>();
+          do {
+            ++this.i; // '<' or ','
+            typeArguments.add(this.type());
+          } while (this.s.startsWith(",", this.i));
+          this.expect('>');
+          yield this.domain.declaredType(te, typeArguments.toArray(new TypeMirror[0]));
+        }
+        };
+      }
+      while (this.s.startsWith("[]", this.i)) {
+        this.i += 2;
+        t = this.domain.arrayTypeOf(t);
+      }
+      return t;
+    }
+
+    private final TypeMirror typeVariable(final String name) {
+      if (this.context != null) {
+        for (final TypeParameterElement tp : this.context.getTypeParameters()) {
+          if (tp.getSimpleName().contentEquals(name)) {
+            return tp.asType();
+          }
+        }
+      }
+      throw new IllegalArgumentException("s: " + this.s + "; unknown type variable: " + name);
+    }
+    private final String name() {
+      final int start = this.i;
+      while (this.i < this.s.length() && "<>,[]".indexOf(this.s.charAt(this.i)) < 0) {
+        ++this.i;
+      }
+      if (this.i == start) {
+        throw new IllegalArgumentException("s: " + this.s + "; index: " + start);
+      }
+      return this.s.substring(start, this.i);
+    }
+
+    private final void expect(final char c) {
+      if (this.i >= this.s.length() || this.s.charAt(this.i) != c) {
+        throw new IllegalArgumentException("s: " + this.s + "; index: " + this.i + "; expected: " + c);
+      }
+      ++this.i;
+    }
+
+  }
+
+}
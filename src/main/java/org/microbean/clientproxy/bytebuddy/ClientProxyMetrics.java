@@ -0,0 +1,374 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2025 microBean™.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.microbean.clientproxy.bytebuddy;
+
+import java.lang.invoke.MethodHandles;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A utility class holding call metrics recorded by client proxy classes {@linkplain
+ * BBClientProxyClassGenerator.Option#INSTRUMENTED generated} to record them.
+ *
+ * <p>Each delegating method of such a client proxy class, its {@code $proxied()} method, and, if it has one, its {@code
+ * $acquireProxied()} method, count their calls. One in every {@linkplain #samplingInterval(int) <em>n</em>} calls is
+ * also timed, and its latency recorded in a histogram. Because each delegating method calls {@code $proxied()} once, the
+ * difference between their mean latencies approximates the time spent in the contextual reference itself, and the
+ * mean latency of {@code $proxied()} the time spent acquiring it. Calls to {@code $acquireProxied()}, if any, are
+ * those that missed the cache of the {@link BBClientProxyClassGenerator.Option#STABLE} or {@link
+ * BBClientProxyClassGenerator.Option#PER_THREAD} option in effect.</p>
+ *
+ * <p>Metrics are kept for as long as the client proxy classes that recorded them are reachable. They are read with the
+ * {@link #snapshot()} and {@link #snapshot(Class)} methods.</p>
+ *
+ * <p>A client proxy class generated with {@link BBClientProxyClassGenerator.Option#INSTRUMENTED} refers to this class,
+ * so the module containing it must read this module.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson" target="_top">Laird Nelson</a>
+ *
+ * @see BBClientProxyClassGenerator.Option#INSTRUMENTED
+ */
+public final class ClientProxyMetrics {
+
+
+  /*
+   * Static fields.
+   */
+
+
+  // Returned by MethodMetrics#enter() for calls that are not timed. System.nanoTime() may return any long, but will not
+  // in practice return this one.
+  private static final long UNSAMPLED = Long.MIN_VALUE;
+
+  // 0 means no calls are timed.
+  private static volatile int samplingInterval;
+
+  // Client proxy classes to their method metrics, indexed by method signature (e.g. "frob(java.lang.String)").
+  private static final ClassValue<ConcurrentMap<String, MethodMetrics>> metrics = new ClassValue<>() {
+      @Override // ClassValue<ConcurrentMap<String, MethodMetrics>>
+      protected final ConcurrentMap<String, MethodMetrics> computeValue(final Class<?> c) {
+        final ConcurrentMap<String, MethodMetrics> m = new ConcurrentHashMap<>();
+        lock.lock();
+        try {
+          classes.put(c, m);
+        } finally {
+          lock.unlock();
+        }
+        return m;
+      }
+    };
+
+  // The same as metrics, but enumerable. Weak keys so that redeploys do not pin client proxy classes; the values do
+  // not refer to their keys. Guarded by lock.
+  private static final Map<Class<?>, ConcurrentMap<String, MethodMetrics>> classes = new WeakHashMap<>();
+
+  private static final Lock lock = new ReentrantLock(); // not synchronized, so virtual threads are not pinned
+
+
+  /*
+   * Constructors.
+   */
+
+
+  private ClientProxyMetrics() {
+    super();
+  }
+
+
+  /*
+   * Static methods.
+   */
+
+
+  /**
+   * Returns the {@link MethodMetrics} for the method bearing the supplied signature of the supplied client proxy class,
+   * creating it if necessary.
+   *
+   * <p>This method is intended to be called only by generated client proxy classes.</p>
+   *
+   * @param proxyClass a client proxy class; must not be {@code null}
+   *
+   * @param method the signature of a method of {@code proxyClass}, such as {@code frob(java.lang.String)}; must not be
+   * {@code null}
+   *
+   * @return a non-{@code null} {@link MethodMetrics}
+   *
+   * @exception NullPointerException if any argument is {@code null}
+   */
+  public static final MethodMetrics of(final Class<?> proxyClass, final String method) {
+    final ConcurrentMap<String, MethodMetrics> m = metrics.get(proxyClass);
+    final MethodMetrics mm = m.get(method);
+    return mm == null ? m.computeIfAbsent(method, x -> new MethodMetrics()) : mm;
+  }
+
+  /**
+   * A dynamic constant bootstrap method that returns the {@link MethodMetrics} for the method bearing the supplied
+   * signature of the {@linkplain MethodHandles.Lookup#lookupClass() lookup class}, creating it if necessary.
+   *
+   * <p>Each instrumented method of a client proxy class loads its {@link MethodMetrics} as a dynamic constant resolved
+   * by this method, so it is looked up once per method, not once per call.</p>
+   *
+   * <p>This method is intended to be called only by the Java virtual machine on behalf of generated client proxy
+   * classes.</p>
+   *
+   * @param lookup a {@link MethodHandles.Lookup} whose {@linkplain MethodHandles.Lookup#lookupClass() lookup class} is
+   * a client proxy class; must not be {@code null}
+   *
+   * @param name the name of the dynamic constant; ignored
+   *
+   * @param type the type of the dynamic constant; ignored
+   *
+   * @param method the signature of a method of the client proxy class, such as {@code frob(java.lang.String)}; must
+   * not be {@code null}
+   *
+   * @return a non-{@code null} {@link MethodMetrics}
+   *
+   * @exception NullPointerException if {@code lookup} or {@code method} is {@code null}
+   *
+   * @see #of(Class, String)
+   */
+  public static final MethodMetrics methodMetrics(final MethodHandles.Lookup lookup,
+                                                  final String name,
+                                                  final Class<?> type,
+                                                  final String method) {
+    return of(lookup.lookupClass(), method);
+  }
+
+  /**
+   * Returns the interval at which calls are timed: one in every <em>n</em> calls is timed, or none if <em>n</em> is
+   * {@code 0}, which is the default.
+   *
+   * @return the interval at which calls are timed; never negative
+   *
+   * @see #samplingInterval(int)
+   */
+  public static final int samplingInterval() {
+    return samplingInterval;
+  }
+
+  /**
+   * Sets the interval at which calls are timed: one in every <em>n</em> calls, chosen at random, will be timed, or none
+   * if <em>n</em> is {@code 0}.
+   *
+   * <p>Timing a call costs two calls to {@link System#nanoTime()}, so small intervals perturb what they measure.</p>
+   *
+   * @param n the interval; must not be negative
+   *
+   * @exception IllegalArgumentException if {@code n} is negative
+   */
+  public static final void samplingInterval(final int n) {
+    if (n < 0) {
+      throw new IllegalArgumentException("n: " + n);
+    }
+    samplingInterval = n;
+  }
+
+  /**
+   * Returns an immutable snapshot of the metrics recorded by all reachable client proxy classes that have recorded any.
+   *
+   * @return a non-{@code null}, immutable {@link Map} of client proxy classes to the results of calling {@link
+   * #snapshot(Class)} on them
+   */
+  public static final Map<Class<?>, Map<String, Snapshot>> snapshot() {
+    final List<Class<?>> cs;
+    lock.lock();
+    try {
+      cs = new ArrayList<>(classes.keySet());
+    } finally {
+      lock.unlock();
+    }
+    final Map<Class<?>, Map<String, Snapshot>> m = new HashMap<>();
+    for (final Class<?> c : cs) {
+      m.put(c, snapshot(c));
+    }
+    return Collections.unmodifiableMap(m);
+  }
+
+  /**
+   * Returns an immutable snapshot of the metrics recorded by the supplied client proxy class, indexed by method
+   * signature.
+   *
+   * <p>Method signatures are the method's name followed by a parenthesized, comma-separated list of the names of its
+   * parameters' erased types, such as {@code frob(java.lang.String,int)}. Only methods that have been called are
+   * included.</p>
+   *
+   * <p>The individual counts are read at slightly different times, so, while calls are being made, a {@link Snapshot}
+   * may be slightly inconsistent.</p>
+   *
+   * @param proxyClass a client proxy class; must not be {@code null}
+   *
+   * @return a non-{@code null}, immutable {@link Map} of method signatures to {@link Snapshot}s, ordered by method
+   * signature; empty if {@code proxyClass} has recorded no metrics
+   *
+   * @exception NullPointerException if {@code proxyClass} is {@code null}
+   */
+  public static final Map<String, Snapshot> snapshot(final Class<?> proxyClass) {
+    Objects.requireNonNull(proxyClass, "proxyClass");
+    final ConcurrentMap<String, MethodMetrics> m;
+    lock.lock();
+    try {
+      m = classes.get(proxyClass);
+    } finally {
+      lock.unlock();
+    }
+    if (m == null) {
+      return Map.of();
+    }
+    final Map<String, Snapshot> snapshots = new TreeMap<>();
+    m.forEach((method, mm) -> snapshots.put(method, mm.snapshot()));
+    return Collections.unmodifiableMap(snapshots);
+  }
+
+
+  /*
+   * Inner and nested classes.
+   */
+
+
+  /**
+   * Metrics recorded by one method of one client proxy class.
+   *
+   * <p>Instances of this class are safe for concurrent use by multiple threads.</p>
+   *
+   * @author <a href="https://about.me/lairdnelson" target="_top">Laird Nelson</a>
+   *
+   * @see ClientProxyMetrics#methodMetrics(MethodHandles.Lookup, String, Class, String)
+   */
+  public static final class MethodMetrics {
+
+    private final LongAdder calls;
+
+    private final LongAdder samples;
+
+    private final LongAdder sampledNanos;
+
+    // Index i counts sampled calls that took 64 - Long.numberOfLeadingZeros(nanos) == i nanoseconds, i.e. at least
+    // 2^(i-1) and less than 2^i nanoseconds. Sampled calls are rare, so contention here is low.
+    private final AtomicLongArray histogram;
+
+    private MethodMetrics() {
+      super();
+      this.calls = new LongAdder();
+      this.samples = new LongAdder();
+      this.sampledNanos = new LongAdder();
+      this.histogram = new AtomicLongArray(Long.SIZE);
+    }
+
+    /**
+     * Records the start of a call and returns a value to be passed to {@link #exit(long)} when it ends.
+     *
+     * <p>This method is intended to be called only by generated client proxy classes.</p>
+     *
+     * @return a value to be passed to {@link #exit(long)}
+     */
+    public final long enter() {
+      this.calls.increment();
+      final int n = samplingInterval;
+      return n > 0 && (n == 1 || ThreadLocalRandom.current().nextInt(n) == 0) ? System.nanoTime() : UNSAMPLED;
+    }
+
+    /**
+     * Records the end of a call, normal or abrupt.
+     *
+     * <p>This method is intended to be called only by generated client proxy classes.</p>
+     *
+     * @param start the value returned by the {@link #enter()} call that started the call
+     */
+    public final void exit(final long start) {
+      if (start != UNSAMPLED) {
+        final long nanos = Math.max(0L, System.nanoTime() - start);
+        this.samples.increment();
+        this.sampledNanos.add(nanos);
+        this.histogram.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(nanos));
+      }
+    }
+
+    private final Snapshot snapshot() {
+      int length = this.histogram.length();
+      while (length > 0 && this.histogram.get(length - 1) == 0L) {
+        --length;
+      }
+      final Long[] histogram = new Long[length];
+      for (int i = 0; i < length; i++) {
+        histogram[i] = this.histogram.get(i);
+      }
+      return new Snapshot(this.calls.sum(), this.samples.sum(), this.sampledNanos.sum(), List.of(histogram));
+    }
+
+  }
+
+  /**
+   * An immutable snapshot of the metrics recorded by one method of one client proxy class.
+   *
+   * @param calls the number of calls made, whether or not they completed
+   *
+   * @param samples the number of completed calls that were timed
+   *
+   * @param sampledNanos the total latency, in nanoseconds, of the calls that were timed
+   *
+   * @param histogram the latencies of the calls that were timed, as a {@link List} of counts; the count at index
+   * <em>i</em> is the number of timed calls that took at least 2<sup><em>i</em>-1</sup> and less than
+   * 2<sup><em>i</em></sup> nanoseconds (the count at index {@code 0} is the number that took less than a nanosecond);
+   * trailing zero counts are omitted; must not be {@code null}
+   *
+   * @author <a href="https://about.me/lairdnelson" target="_top">Laird Nelson</a>
+   */
+  public static final record Snapshot(long calls, long samples, long sampledNanos, List<Long> histogram) {
+
+    /**
+     * Creates a new {@link Snapshot}.
+     *
+     * @param calls the number of calls made, whether or not they completed
+     *
+     * @param samples the number of completed calls that were timed
+     *
+     * @param sampledNanos the total latency, in nanoseconds, of the calls that were timed
+     *
+     * @param histogram the latencies of the calls that were timed; must not be {@code null}
+     *
+     * @exception NullPointerException if {@code histogram} is {@code null}
+     */
+    public Snapshot {
+      histogram = List.copyOf(histogram);
+    }
+
+    /**
+     * Returns the mean latency, in nanoseconds, of the calls that were timed, or {@link Double#NaN} if none were.
+     *
+     * @return the mean latency, in nanoseconds, of the calls that were timed, or {@link Double#NaN}
+     */
+    public final double meanNanos() {
+      return this.samples == 0L ? Double.NaN : (double)this.sampledNanos / this.samples;
+    }
+
+  }
+
+}
@@ -0,0 +1,202 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2025 microBean™.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.microbean.clientproxy.bytebuddy;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+
+import javax.lang.model.SourceVersion;
+
+import javax.lang.model.element.TypeElement;
+
+import javax.tools.Diagnostic;
+
+import org.microbean.bean.BeanTypes;
+
+import org.microbean.construct.DefaultDomain;
+import org.microbean.construct.Domain;
+
+import org.microbean.reference.ProxySpecification;
+
+/**
+ * A {@link javax.annotation.processing.Processor} that generates {@linkplain org.microbean.reference.ClientProxy client
+ * proxy} class files at compile time, using a {@link TypeElementTypePool} over the {@linkplain ProcessingEnvironment
+ * processing environment}'s {@link javax.lang.model.util.Elements} and {@link javax.lang.model.util.Types}, and writes
+ * them with the processing environment's {@link Filer}.
+ *
+ * <p>The types for which client proxy classes should be generated are named, by canonical name and separated by commas,
+ * in the value of the {@value #TYPES_OPTION} processor option, for example:</p>
+ *
+ * <blockquote><pre>javac -processor org.microbean.clientproxy.bytebuddy.ClientProxyProcessor \
+ *  -Aorg.microbean.clientproxy.bytebuddy.types=com.example.Foo,com.example.Bar ...</pre></blockquote>
+ *
+ * <p>The {@linkplain BBClientProxyClassGenerator.Option options} with which they should be generated are named,
+ * separated by commas, in the value of the {@value #OPTIONS_OPTION} processor option, for example:</p>
+ *
+ * <blockquote><pre>-Aorg.microbean.clientproxy.bytebuddy.options=STABLE,COMPACT</pre></blockquote>
+ *
+ * <p>They should be the same options as those of the {@link BBClientProxyClassGenerator} used at run time, since a
+ * {@link BBClientProxier} ignores client proxy classes generated with other options. {@link
+ * BBClientProxyClassGenerator.Option#CONSTRUCTORLESS} is not permitted.</p>
+ *
+ * <p>This processor is not registered as a service, and so runs only when it is named explicitly, as above.</p>
+ *
+ * <p>At run time, a {@link BBClientProxier} loads client proxy classes so generated without any Byte Buddy generation.
+ * Before it loads one for the first time, however, it computes that client proxy class' structural fingerprint, which
+ * walks its superclass, its interfaces and all of their supertypes through its {@link Domain}, and compares it with the
+ * one recorded in the class file, so that a class file generated for a superclass that has since changed is never
+ * used.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson" target="_top">Laird Nelson</a>
+ *
+ * @see BBClientProxier#definition(ProxySpecification)
+ */
+@SupportedAnnotationTypes("*")
+@SupportedOptions({ ClientProxyProcessor.TYPES_OPTION, ClientProxyProcessor.OPTIONS_OPTION })
+public final class ClientProxyProcessor extends AbstractProcessor {
+
+
+  /*
+   * Static fields.
+   */
+
+
+  /**
+   * The name of the processor option whose value is a comma-separated list of canonical names of types for which client
+   * proxy classes should be generated.
+   */
+  public static final String TYPES_OPTION = "org.microbean.clientproxy.bytebuddy.types";
+
+  /**
+   * The name of the processor option whose value is a comma-separated list of the names of the {@link
+   * BBClientProxyClassGenerator.Option}s with which client proxy classes should be generated.
+   */
+  public static final String OPTIONS_OPTION = "org.microbean.clientproxy.bytebuddy.options";
+
+
+  /*
+   * Instance fields.
+   */
+
+
+  private boolean generated;
+
+
+  /*
+   * Constructors.
+   */
+
+
+  /**
+   * Creates a new {@link ClientProxyProcessor}.
+   */
+  public ClientProxyProcessor() {
+    super();
+  }
+
+
+  /*
+   * Instance methods.
+   */
+
+
+  @Override // AbstractProcessor
+  public final SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override // AbstractProcessor
+  public final boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnvironment) {
+    if (this.generated || roundEnvironment.processingOver()) {
+      return false;
+    }
+    this.generated = true;
+    final String types = this.processingEnv.getOptions().get(TYPES_OPTION);
+    if (types == null || types.isBlank()) {
+      return false;
+    }
+    final Domain domain = new DefaultDomain(this.processingEnv);
+    final BeanTypes beanTypes = new BeanTypes(domain);
+    final TypeElementTypePool typePool = new TypeElementTypePool(domain);
+    final BBClientProxier proxier;
+    try {
+      // Nothing generated here will be defined in this JVM, so there is no point in sharing class files.
+      proxier =
+        new BBClientProxier(domain,
+                            new TypeDefinitions(typePool),
+                            new BBClientProxyClassGenerator(typePool, options(this.processingEnv.getOptions().get(OPTIONS_OPTION))),
+                            new ClientProxyClassCache(0));
+    } catch (final IllegalArgumentException x) {
+      this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Invalid " + OPTIONS_OPTION + ": " + x.getMessage());
+      return false;
+    }
+    final Filer filer = this.processingEnv.getFiler();
+    for (final String type : types.split(",")) {
+      final String canonicalName = type.strip();
+      if (canonicalName.isEmpty()) {
+        continue;
+      }
+      final TypeElement e = this.processingEnv.getElementUtils().getTypeElement(canonicalName);
+      if (e == null) {
+        this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "No such type: " + canonicalName);
+        continue;
+      }
+      try {
+        final ClientProxyClassDefinition d =
+          proxier.definition(new ProxySpecification(domain, beanTypes.beanTypes(domain.declaredType(canonicalName))));
+        try (final OutputStream os = filer.createClassFile(d.name(), e).openOutputStream()) {
+          os.write(d.bytes());
+        }
+      } catch (final IOException | RuntimeException x) {
+        this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                                                      "Could not generate client proxy class for " + canonicalName +
+                                                      ": " + x,
+                                                      e);
+      }
+    }
+    return false;
+  }
+
+
+  /*
+   * Static methods.
+   */
+
+
+  private static final BBClientProxyClassGenerator.Option[] options(final String options) {
+    final List<BBClientProxyClassGenerator.Option> os = new ArrayList<>();
+    if (options != null) {
+      for (final String o : options.split(",")) {
+        final String name = o.strip();
+        if (!name.isEmpty()) {
+          os.add(BBClientProxyClassGenerator.Option.valueOf(name.toUpperCase(Locale.ROOT))); // IllegalArgumentException
+        }
+      }
+    }
+    return os.toArray(new BBClientProxyClassGenerator.Option[0]);
+  }
+
+}
@@ -0,0 +1,154 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2025 microBean™.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.microbean.clientproxy.bytebuddy;
+
+import net.bytebuddy.asm.AsmVisitorWrapper;
+
+import net.bytebuddy.description.field.FieldDescription;
+import net.bytebuddy.description.field.FieldList;
+
+import net.bytebuddy.description.method.MethodList;
+
+import net.bytebuddy.description.type.TypeDescription;
+
+import net.bytebuddy.implementation.Implementation;
+
+import net.bytebuddy.jar.asm.AnnotationVisitor;
+import net.bytebuddy.jar.asm.ClassVisitor;
+import net.bytebuddy.jar.asm.FieldVisitor;
+import net.bytebuddy.jar.asm.MethodVisitor;
+import net.bytebuddy.jar.asm.TypePath;
+
+import net.bytebuddy.pool.TypePool;
+
+import net.bytebuddy.utility.OpenedClassReader;
+
+/**
+ * An {@link AsmVisitorWrapper} that leaves out of a client proxy class file all metadata that neither the Java Virtual
+ * Machine nor the client proxy class itself requires.
+ *
+ * <p>Specifically, generic signatures of the class and of its fields and methods are omitted, as are the names and
+ * modifiers of method parameters, and any annotations that Byte Buddy copies to a method, or to its parameters, from
+ * the method it overrides. Client proxy classes carry a great deal of such metadata, since they override every
+ * delegated method of their supertypes, and the metadata must be parsed, stored and, in the case of signatures,
+ * validated, even though nothing normally reads it.</p>
+ *
+ * <p>Reflective callers of a client proxy class compacted in this way see erasures where they would otherwise see
+ * generic types, synthesized names where they would otherwise see parameter names, and no annotations on its
+ * methods.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson" target="_top">Laird Nelson</a>
+ *
+ * @see BBClientProxyClassGenerator.Option#COMPACT
+ */
+final class CompactingAsmVisitorWrapper extends AsmVisitorWrapper.AbstractBase {
+
+  CompactingAsmVisitorWrapper() {
+    super();
+  }
+
+  @Override // AsmVisitorWrapper
+  public final ClassVisitor wrap(final TypeDescription instrumentedType,
+                                 final ClassVisitor classVisitor,
+                                 final Implementation.Context implementationContext,
+                                 final TypePool typePool,
+                                 final FieldList<FieldDescription.InDefinedShape> fields,
+                                 final MethodList<?> methods,
+                                 final int writerFlags,
+                                 final int readerFlags) {
+    return new CompactingClassVisitor(classVisitor);
+  }
+
+
+  /*
+   * Inner and nested classes.
+   */
+
+
+  private static final class CompactingClassVisitor extends ClassVisitor {
+
+    private CompactingClassVisitor(final ClassVisitor classVisitor) {
+      super(OpenedClassReader.ASM_API, classVisitor);
+    }
+
+    @Override // ClassVisitor
+    public final void visit(final int version,
+                            final int access,
+                            final String name,
+                            final String signature,
+                            final String superName,
+                            final String[] interfaces) {
+      super.visit(version, access, name, null, superName, interfaces);
+    }
+
+    @Override // ClassVisitor
+    public final FieldVisitor visitField(final int access,
+                                         final String name,
+                                         final String descriptor,
+                                         final String signature,
+                                         final Object value) {
+      return super.visitField(access, name, descriptor, null, value);
+    }
+
+    @Override // ClassVisitor
+    public final MethodVisitor visitMethod(final int access,
+                                           final String name,
+                                           final String descriptor,
+                                           final String signature,
+                                           final String[] exceptions) {
+      final MethodVisitor mv = super.visitMethod(access, name, descriptor, null, exceptions);
+      return mv == null ? null : new CompactingMethodVisitor(mv);
+    }
+
+  }
+
+  private static final class CompactingMethodVisitor extends MethodVisitor {
+
+    private CompactingMethodVisitor(final MethodVisitor methodVisitor) {
+      super(OpenedClassReader.ASM_API, methodVisitor);
+    }
+
+    @Override // MethodVisitor
+    public final void visitParameter(final String name, final int access) {
+
+    }
+
+    @Override // MethodVisitor
+    public final AnnotationVisitor visitAnnotation(final String descriptor, final boolean visible) {
+      return null;
+    }
+
+    @Override // MethodVisitor
+    public final AnnotationVisitor visitTypeAnnotation(final int typeRef,
+                                                       final TypePath typePath,
+                                                       final String descriptor,
+                                                       final boolean visible) {
+      return null;
+    }
+
+    @Override // MethodVisitor
+    public final void visitAnnotableParameterCount(final int parameterCount, final boolean visible) {
+
+    }
+
+    @Override // MethodVisitor
+    public final AnnotationVisitor visitParameterAnnotation(final int parameter,
+                                                            final String descriptor,
+                                                            final boolean visible) {
+      return null;
+    }
+
+  }
+
+}
@@ -0,0 +1,203 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2025 microBean™.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.microbean.clientproxy.bytebuddy;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.Set;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+
+import net.bytebuddy.jar.asm.ClassReader;
+import net.bytebuddy.jar.asm.ClassVisitor;
+import net.bytebuddy.jar.asm.FieldVisitor;
+
+import net.bytebuddy.utility.OpenedClassReader;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A utility class for computing <dfn>structural fingerprints</dfn> of client proxy classes.
+ *
+ * <p>A structural fingerprint is a hexadecimal SHA-256 digest of the proxy class name, a description of a {@link
+ * BBClientProxyClassGenerator}'s configuration, and the names, modifiers, supertypes and method signatures of the
+ * proxy's superclass, interfaces and all of their supertypes, together with, unless the generator omits them from the
+ * class files it generates, the annotations of their methods and of those methods' parameters, and the names of those
+ * parameters. Everything that a {@link BBClientProxyClassGenerator} copies from these types into a client proxy class
+ * is thus part of its fingerprint, so that a change to any of it yields a new fingerprint. The computation uses only {@code javax.lang.model} constructs and so causes neither
+ * class loading nor any <a href="https://bytebuddy.net/#/">Byte Buddy</a> work to occur.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson" target="_top">Laird Nelson</a>
+ */
+final class Fingerprints {
+
+  private static final HexFormat hexFormat = HexFormat.of();
+
+  private Fingerprints() {
+    super();
+  }
+
+  /**
+   * Returns a structural fingerprint for a client proxy class.
+   *
+   * @param name the name of the client proxy class; must not be {@code null}
+   *
+   * @param superclass a {@link TypeMirror} representing the client proxy class' superclass; must not be {@code null}
+   *
+   * @param interfaces a {@link Collection} of {@link TypeMirror}s representing the client proxy class' interfaces; must
+   * not be {@code null}
+   *
+   * @param generatorConfiguration a {@link String} describing the configuration of the {@link
+   * BBClientProxyClassGenerator} that will generate the class; must not be {@code null}
+   *
+   * @param metadata whether the {@link BBClientProxyClassGenerator} that will generate the class copies method and
+   * parameter annotations and parameter names into it, as it does unless {@link BBClientProxyClassGenerator.Option#COMPACT}
+   * is in effect
+   *
+   * @return a non-{@code null} hexadecimal {@link String}
+   *
+   * @exception NullPointerException if any argument is {@code null}
+   */
+  static final String fingerprint(final String name,
+                                  final TypeMirror superclass,
+                                  final Collection<? extends TypeMirror> interfaces,
+                                  final String generatorConfiguration,
+                                  final boolean metadata) {
+    // Assumes the TypeMirrors are thread safe, e.g. supplied via org.microbean.construct.Domain or similar
+    final MessageDigest md = sha256();
+    update(md, generatorConfiguration);
+    update(md, name);
+    update(md, superclass.toString());
+    update(md, interfaces.toString()); // type arguments matter
+    final Set<String> seen = new HashSet<>();
+    final Deque<TypeMirror> q = new ArrayDeque<>();
+    q.add(superclass);
+    q.addAll(interfaces);
+    while (!q.isEmpty()) {
+      final TypeMirror t = q.removeFirst();
+      if (t.getKind() != TypeKind.DECLARED) {
+        continue;
+      }
+      final TypeElement te = (TypeElement)((DeclaredType)t).asElement();
+      if (!seen.add(te.getQualifiedName().toString())) {
+        continue;
+      }
+      update(md, te.getKind().name());
+      update(md, te.getModifiers().toString());
+      update(md, te.getQualifiedName());
+      update(md, te.getSuperclass().toString());
+      update(md, te.getInterfaces().toString());
+      for (final Element e : te.getEnclosedElements()) {
+        final ElementKind k = e.getKind();
+        if (k == ElementKind.METHOD || k == ElementKind.CONSTRUCTOR) {
+          update(md, e.getModifiers().toString());
+          update(md, e.getSimpleName());
+          update(md, e.asType().toString()); // includes type parameters, parameter types, return type, throws
+          if (metadata) {
+            update(md, annotations(e));
+            for (final VariableElement p : ((ExecutableElement)e).getParameters()) {
+              update(md, p.getSimpleName());
+              update(md, annotations(p));
+            }
+          }
+        }
+      }
+      q.add(te.getSuperclass());
+      q.addAll(te.getInterfaces());
+    }
+    return hexFormat.formatHex(md.digest());
+  }
+
+  /**
+   * Returns the structural fingerprint recorded in the supplied class file by {@link
+   * BBClientProxyClassGenerator#generate(String, net.bytebuddy.description.type.TypeDefinition, Collection, String)},
+   * or {@code null} if there is none.
+   *
+   * @param classFile the bytes of a class file; must not be {@code null}
+   *
+   * @return the recorded structural fingerprint, or {@code null}
+   *
+   * @exception NullPointerException if {@code classFile} is {@code null}
+   *
+   * @exception IllegalArgumentException if {@code classFile} is malformed
+   */
+  static final String recorded(final byte[] classFile) {
+    Objects.requireNonNull(classFile, "classFile");
+    final String[] fingerprint = new String[1];
+    try {
+      new ClassReader(classFile).accept(new ClassVisitor(OpenedClassReader.ASM_API) {
+          @Override // ClassVisitor
+          public final FieldVisitor visitField(final int access,
+                                               final String name,
+                                               final String descriptor,
+                                               final String signature,
+                                               final Object value) {
+            if ("$fingerprint".equals(name) && value instanceof String s) {
+              fingerprint[0] = s;
+            }
+            return null;
+          }
+        }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+    } catch (final RuntimeException e) {
+      throw new IllegalArgumentException(e.getMessage(), e);
+    }
+    return fingerprint[0];
+  }
+
+  // Annotations that never reach a class file cannot reach a client proxy class either.
+  private static final String annotations(final Element e) {
+    final StringBuilder sb = new StringBuilder();
+    for (final AnnotationMirror a : e.getAnnotationMirrors()) {
+      final Retention r = a.getAnnotationType().asElement().getAnnotation(Retention.class);
+      if (r == null || r.value() != RetentionPolicy.SOURCE) {
+        sb.append(a).append(' ');
+      }
+    }
+    return sb.toString();
+  }
+
+  static final MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (final NoSuchAlgorithmException e) {
+      // Every Java platform implementation is required to support SHA-256.
+      throw new AssertionError(e.getMessage(), e);
+    }
+  }
+
+  private static final void update(final MessageDigest md, final CharSequence s) {
+    md.update(s.toString().getBytes(UTF_8));
+    md.update((byte)0); // delimiter
+  }
+
+}
@@ -0,0 +1,156 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2025 microBean™.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.microbean.clientproxy.bytebuddy;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+
+import java.util.function.Supplier;
+
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * A utility class containing the {@code invokedynamic} bootstrap method used by client proxy classes {@linkplain
+ * BBClientProxyClassGenerator.Option#INVOKEDYNAMIC generated} to resolve their contextual references through a call
+ * site of their own.
+ *
+ * <p>Each such call site is a small inline cache. It is initially unlinked. The first time it is invoked it links
+ * itself to a call to {@link Supplier#get()} specialized for the exact class of the {@link Supplier} it was given,
+ * guarded by a check of that class. If the guard ever fails, the call site relinks itself permanently to a plain
+ * interface call, which is exactly what a client proxy class generated without {@code invokedynamic} does.</p>
+ *
+ * <p>A client proxy class generated in this mode refers to this class, so the module containing it must read this
+ * module.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson" target="_top">Laird Nelson</a>
+ */
+public final class ProxiedCallSites {
+
+
+  /*
+   * Static fields.
+   */
+
+
+  // (Supplier)Object
+  private static final MethodType GET_TYPE = methodType(Object.class, Supplier.class);
+
+  private static final MethodHandle GET;
+
+  private static final MethodHandle SAME_CLASS;
+
+  private static final MethodHandle LINK;
+
+  private static final MethodHandle UNLINK;
+
+  static {
+    final Lookup lookup = MethodHandles.lookup();
+    try {
+      GET = lookup.findVirtual(Supplier.class, "get", methodType(Object.class));
+      SAME_CLASS =
+        lookup.findStatic(ProxiedCallSites.class, "sameClass", methodType(boolean.class, Class.class, Supplier.class));
+      LINK = lookup.findVirtual(InlineCache.class, "link", GET_TYPE);
+      UNLINK = lookup.findVirtual(InlineCache.class, "unlink", GET_TYPE);
+    } catch (final IllegalAccessException | NoSuchMethodException e) {
+      throw (ExceptionInInitializerError)new ExceptionInInitializerError(e.getMessage()).initCause(e);
+    }
+  }
+
+
+  /*
+   * Constructors.
+   */
+
+
+  private ProxiedCallSites() {
+    super();
+  }
+
+
+  /*
+   * Static methods.
+   */
+
+
+  /**
+   * Returns a new {@link CallSite} that calls {@link Supplier#get()} on its sole argument.
+   *
+   * <p>This method is intended to be called only by the Java virtual machine while linking an {@code invokedynamic}
+   * instruction.</p>
+   *
+   * @param lookup a {@link Lookup}; ignored
+   *
+   * @param name the name of the method the {@code invokedynamic} instruction invokes; ignored
+   *
+   * @param type the {@link MethodType} of the {@code invokedynamic} instruction; must not be {@code null}; must accept
+   * a {@link Supplier} (or a subtype) and return a reference type
+   *
+   * @return a new, non-{@code null} {@link CallSite}
+   *
+   * @exception NullPointerException if {@code type} is {@code null}
+   *
+   * @exception IllegalArgumentException if {@code type} is unsuitable
+   */
+  public static final CallSite proxied(final Lookup lookup, final String name, final MethodType type) {
+    if (type.parameterCount() != 1 ||
+        !Supplier.class.isAssignableFrom(type.parameterType(0)) ||
+        type.returnType().isPrimitive()) {
+      throw new IllegalArgumentException("type: " + type);
+    }
+    return new InlineCache(type);
+  }
+
+  private static final boolean sameClass(final Class<?> c, final Supplier<?> s) {
+    return s.getClass() == c;
+  }
+
+
+  /*
+   * Inner and nested classes.
+   */
+
+
+  private static final class InlineCache extends MutableCallSite {
+
+    private InlineCache(final MethodType type) {
+      super(type);
+      this.setTarget(LINK.bindTo(this).asType(type));
+    }
+
+    // Normally called only once, on the first invocation.
+    private final Object link(final Supplier<?> s) {
+      final Class<?> c = s.getClass();
+      final MethodType type = this.type();
+      // Casting to the (normally final) exact class lets the JIT devirtualize and inline the call to get().
+      final MethodHandle exact = GET.asType(methodType(Object.class, c)).asType(GET_TYPE);
+      this.setTarget(MethodHandles.guardWithTest(SAME_CLASS.bindTo(c),
+                                                 exact,
+                                                 UNLINK.bindTo(this))
+                     .asType(type));
+      return s.get();
+    }
+
+    // Normally called only once, the first time a Supplier of a different class is seen.
+    private final Object unlink(final Supplier<?> s) {
+      this.setTarget(GET.asType(this.type()));
+      return s.get();
+    }
+
+  }
+
+}
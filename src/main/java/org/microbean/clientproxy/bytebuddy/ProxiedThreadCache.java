@@ -0,0 +1,109 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2025 microBean™.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.microbean.clientproxy.bytebuddy;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A utility class holding, for the current thread, the contextual references acquired by client proxy classes
+ * {@linkplain BBClientProxyClassGenerator.Option#PER_THREAD generated} to cache them per thread.
+ *
+ * <p>Contextual references are cached until {@link #invalidate()} is called on the thread that acquired them, normally
+ * at the end of a request or other unit of work. Threads that are reused, such as those in a pool, must call {@link
+ * #invalidate()} in this way, or they will continue to see stale contextual references, and will keep both them and
+ * the client proxies that acquired them reachable.</p>
+ *
+ * <p>A client proxy class generated with {@link BBClientProxyClassGenerator.Option#PER_THREAD} refers to this class, so
+ * the module containing it must read this module.</p>
+ *
+ * @author <a href="https://about.me/lairdnelson" target="_top">Laird Nelson</a>
+ */
+public final class ProxiedThreadCache {
+
+
+  /*
+   * Static fields.
+   */
+
+
+  // Client proxies to their contextual references, by identity.
+  private static final ThreadLocal<Map<Object, Object>> cache = new ThreadLocal<>();
+
+
+  /*
+   * Constructors.
+   */
+
+
+  private ProxiedThreadCache() {
+    super();
+  }
+
+
+  /*
+   * Static methods.
+   */
+
+
+  /**
+   * Returns the contextual reference cached for the supplied client proxy on the current thread, or {@code null} if
+   * there is no such contextual reference.
+   *
+   * <p>This method is intended to be called only by generated client proxy classes.</p>
+   *
+   * @param proxy a client proxy; may be {@code null} in which case {@code null} will be returned
+   *
+   * @return the contextual reference cached for the supplied client proxy on the current thread, or {@code null}
+   */
+  public static final Object get(final Object proxy) {
+    final Map<Object, Object> m = cache.get();
+    return m == null ? null : m.get(proxy);
+  }
+
+  /**
+   * Caches the supplied contextual reference for the supplied client proxy on the current thread until {@link
+   * #invalidate()} is called.
+   *
+   * <p>This method is intended to be called only by generated client proxy classes.</p>
+   *
+   * @param proxy a client proxy; must not be {@code null}
+   *
+   * @param instance the contextual reference; may be {@code null} in which case nothing will be cached
+   *
+   * @exception NullPointerException if {@code proxy} is {@code null}
+   */
+  public static final void put(final Object proxy, final Object instance) {
+    if (instance != null) {
+      Map<Object, Object> m = cache.get();
+      if (m == null) {
+        m = new IdentityHashMap<>();
+        cache.set(m);
+      }
+      m.put(Objects.requireNonNull(proxy, "proxy"), instance);
+    }
+  }
+
+  /**
+   * Discards all contextual references cached on the current thread.
+   *
+   * <p>This method should be called at the end of each request or other unit of work during which client proxies
+   * generated with {@link BBClientProxyClassGenerator.Option#PER_THREAD} may have been used.</p>
+   */
+  public static final void invalidate() {
+    cache.remove();
+  }
+
+}
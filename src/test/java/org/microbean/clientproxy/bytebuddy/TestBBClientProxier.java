@@ -19,14 +19,38 @@ import java.lang.constant.DynamicConstantDesc;
 import java.lang.constant.ClassDesc;
 import java.lang.constant.MethodHandleDesc;
 
+import java.io.IOException;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import java.nio.file.Path;
+
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import org.junit.jupiter.api.io.TempDir;
+
+import net.bytebuddy.description.type.TypeDescription;
+
 import org.microbean.attributes.Attributes;
 
 import org.microbean.bean.AttributedType;
@@ -45,11 +69,14 @@ import org.microbean.bean.Reducer;
 import org.microbean.bean.RankedReducer;
 import org.microbean.bean.Reducible;
 
+import org.microbean.clientproxy.bytebuddy.other.Glorp;
+
 import org.microbean.construct.DefaultDomain;
 import org.microbean.construct.Domain;
 
 import org.microbean.reference.ClientProxy;
 import org.microbean.reference.DefaultRequest;
+import org.microbean.reference.ProxySpecification;
 
 import org.microbean.scopelet.MapBackedScopelet;
 import org.microbean.scopelet.NoneScopelet;
@@ -59,11 +86,14 @@ import org.microbean.scopelet.SingletonScopelet;
 
 import static java.lang.constant.ConstantDescs.BSM_INVOKE;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import static org.microbean.assign.Qualifiers.anyQualifier;
@@ -74,6 +104,9 @@ import static org.microbean.assign.Qualifiers.qualifier;
 
 import static org.microbean.bean.Beans.cachingSelectableOf;
 
+import static org.microbean.clientproxy.bytebuddy.BBClientProxyClassGenerator.Option.CONSTRUCTORLESS;
+import static org.microbean.clientproxy.bytebuddy.BBClientProxyClassGenerator.Option.STABLE;
+
 import static org.microbean.scopelet.Scopelet.APPLICATION_ID;
 import static org.microbean.scopelet.Scopelet.NONE_ID;
 import static org.microbean.scopelet.Scopelet.SCOPE;
@@ -136,6 +169,288 @@ final class TestBBClientProxier {
     assertEquals("bar", g.bar());
   }
 
+  @Test
+  final void testClientProxyClasses() {
+    final ProxySpecification ps =
+      new ProxySpecification(this.domain,
+                             new BeanTypes(this.domain).beanTypes(this.domain.declaredType(Gorp.class.getCanonicalName())));
+    final BBClientProxier.Batch b;
+    try (final ExecutorService es = Executors.newFixedThreadPool(2)) {
+      b = new BBClientProxier(this.domain).clientProxyClasses(List.of(ps, ps), Gorp.class.getClassLoader(), es);
+    }
+    assertEquals(Map.of(), b.failures());
+    assertEquals(1, b.classes().size());
+    final Class<?> c = b.classes().get(ps.name());
+    assertTrue(Gorp.class.isAssignableFrom(c));
+    assertTrue(ClientProxy.class.isAssignableFrom(c));
+  }
+
+  @Test
+  final void testClientProxyClassesInSeveralPackages() throws ClassNotFoundException {
+    final BeanTypes beanTypes = new BeanTypes(this.domain);
+    final ProxySpecification zorp =
+      new ProxySpecification(this.domain, beanTypes.beanTypes(this.domain.declaredType(Zorp.class.getCanonicalName())));
+    final ProxySpecification quorp =
+      new ProxySpecification(this.domain, beanTypes.beanTypes(this.domain.declaredType(Quorp.class.getCanonicalName())));
+    final ProxySpecification glorp =
+      new ProxySpecification(this.domain, beanTypes.beanTypes(this.domain.declaredType(Glorp.class.getCanonicalName())));
+    final ProxySpecification borked =
+      new ProxySpecification(this.domain, beanTypes.beanTypes(this.domain.declaredType(Borked.class.getCanonicalName())));
+    final TypeElementTypePool tp = new TypeElementTypePool(this.domain);
+    final Lookup lookup = MethodHandles.lookup();
+    final List<String> packages = new CopyOnWriteArrayList<>();
+    final BBClientProxier p =
+      new BBClientProxier(this.domain,
+                          new TypeDefinitions(tp),
+                          new BBClientProxyClassGenerator(tp),
+                          new ClientProxyClassCache(16),
+                          null,
+                          c -> {
+                            packages.add(c.getPackageName());
+                            return c == Glorp.class ? Glorp.lookup() : lookup;
+                          });
+    final ClassLoader cl = Zorp.class.getClassLoader();
+    final CompletableFuture<BBClientProxier.Batch> f;
+    try (final ExecutorService es = Executors.newFixedThreadPool(4)) {
+      f = p.prewarm(List.of(zorp, glorp, borked, quorp, zorp), cl, es);
+      f.join();
+    }
+    assertTrue(f.isDone());
+    assertFalse(f.isCompletedExceptionally());
+    final BBClientProxier.Batch b = f.join();
+
+    // One bad client proxy class does not spoil the others, in its package or in any other.
+    assertEquals(Set.of(zorp.name(), quorp.name(), glorp.name()), b.classes().keySet());
+    assertEquals(Set.of(borked.name()), b.failures().keySet());
+    assertTrue(Zorp.class.isAssignableFrom(b.classes().get(zorp.name())));
+    assertTrue(Quorp.class.isAssignableFrom(b.classes().get(quorp.name())));
+    assertTrue(Glorp.class.isAssignableFrom(b.classes().get(glorp.name())));
+
+    // Defined one package at a time, with one Lookup per package; nothing is defined for the bad one.
+    assertEquals(2, packages.size(), String.valueOf(packages));
+    assertEquals(Set.of(Zorp.class.getPackageName(), Glorp.class.getPackageName()), Set.copyOf(packages));
+
+    // The outcomes are what clientProxyClass(ProxySpecification, ClassLoader) now yields.
+    assertSame(b.classes().get(zorp.name()), p.clientProxyClass(zorp, cl));
+    assertSame(b.classes().get(glorp.name()), p.clientProxyClass(glorp, cl));
+    assertThrows(b.failures().get(borked.name()).getClass(), () -> p.clientProxyClass(borked, cl));
+  }
+
+  @Test
+  final void testPrewarm() throws ClassNotFoundException {
+    final ProxySpecification ps =
+      new ProxySpecification(this.domain,
+                             new BeanTypes(this.domain).beanTypes(this.domain.declaredType(Gorp.class.getCanonicalName())));
+    final BBClientProxier p = new BBClientProxier(this.domain);
+    final ClassLoader cl = Gorp.class.getClassLoader();
+    final CompletableFuture<BBClientProxier.Batch> f;
+    try (final ExecutorService es = Executors.newFixedThreadPool(2)) {
+      f = p.prewarm(List.of(ps), cl, es);
+      // Joins the prewarming work if it is still in flight.
+      assertSame(p.clientProxyClass(ps, cl), f.join().classes().get(ps.name()));
+    }
+  }
+
+  @Test
+  final void testConcurrentClientProxyClass() throws InterruptedException, ExecutionException {
+    final ProxySpecification ps =
+      new ProxySpecification(this.domain,
+                             new BeanTypes(this.domain).beanTypes(this.domain.declaredType(Gorp.class.getCanonicalName())));
+    final BBClientProxier p = new BBClientProxier(this.domain);
+    final ClassLoader cl = Gorp.class.getClassLoader();
+    final CountDownLatch start = new CountDownLatch(1);
+    final List<Future<Class<?>>> futures = new ArrayList<>();
+    try (final ExecutorService es = Executors.newFixedThreadPool(8)) {
+      for (int i = 0; i < 8; i++) {
+        futures.add(es.submit(() -> {
+              start.await();
+              return p.clientProxyClass(ps, cl);
+            }));
+      }
+      start.countDown();
+      final Class<?> c = futures.get(0).get();
+      for (final Future<Class<?>> f : futures) {
+        assertSame(c, f.get()); // no LinkageErrors
+      }
+    }
+  }
+
+  @Test
+  final void testHiddenClientProxyClass() throws ClassNotFoundException {
+    final ProxySpecification ps =
+      new ProxySpecification(this.domain,
+                             new BeanTypes(this.domain).beanTypes(this.domain.declaredType(Gorp.class.getCanonicalName())));
+    final TypeElementTypePool tp = new TypeElementTypePool(this.domain);
+    final Lookup lookup = MethodHandles.lookup(); // full privilege access to Gorp's package
+    final BBClientProxier p =
+      new BBClientProxier(this.domain,
+                          new TypeDefinitions(tp),
+                          new BBClientProxyClassGenerator(tp),
+                          ClientProxyClassCache.shared(),
+                          null,
+                          c -> lookup);
+    final ClassLoader cl = Gorp.class.getClassLoader();
+    final Class<?> c = p.clientProxyClass(ps, cl);
+    assertTrue(c.isHidden());
+    assertSame(TestBBClientProxier.class, c.getNestHost());
+    assertTrue(Gorp.class.isAssignableFrom(c));
+    assertSame(c, p.clientProxyClass(ps, cl)); // not defined again while reachable
+  }
+
+  @Test
+  final void testInterfacesOnlyClientProxyClass() throws ClassNotFoundException {
+    final ProxySpecification ps =
+      new ProxySpecification(this.domain,
+                             new BeanTypes(this.domain).beanTypes(this.domain.declaredType(Frobber.class.getCanonicalName())));
+    final TypeElementTypePool tp = new TypeElementTypePool(this.domain);
+    final Lookup lookup = MethodHandles.lookup();
+    final List<Class<?>> hosts = new CopyOnWriteArrayList<>();
+    final BBClientProxier p =
+      new BBClientProxier(this.domain,
+                          new TypeDefinitions(tp),
+                          new BBClientProxyClassGenerator(tp),
+                          new ClientProxyClassCache(16),
+                          null,
+                          c -> {
+                            hosts.add(c);
+                            return lookup;
+                          });
+    final Class<?> c = p.clientProxyClass(ps, Frobber.class.getClassLoader());
+    assertSame(Object.class, c.getSuperclass());
+    assertTrue(Frobber.class.isAssignableFrom(c));
+    assertTrue(c.isHidden());
+    // The interface in the client proxy class' package, not Object, is given to hiddenClassLookups.
+    assertEquals(List.of(Frobber.class), hosts);
+  }
+
+  @Test
+  final void testHost() throws ClassNotFoundException {
+    final TypeElementTypePool tp = new TypeElementTypePool(this.domain);
+    final BBClientProxyClassGenerator g = new BBClientProxyClassGenerator(tp);
+    final ClassLoader cl = Frobber.class.getClassLoader();
+    final String packageName = Frobber.class.getPackageName();
+
+    // A client proxy class with a superclass is defined next to it.
+    assertSame(Gorp.class,
+               BBClientProxier.host(ClientProxyClassDefinition.of(g.generate(packageName + ".Gorp_Proxy",
+                                                                             tp.describe(Gorp.class.getName()).resolve(),
+                                                                             List.of())),
+                                    cl));
+
+    // A client proxy class with only interfaces is defined next to the first of them in its package.
+    final List<TypeDescription> interfaces =
+      List.of(tp.describe(Runnable.class.getName()).resolve(), tp.describe(Frobber.class.getName()).resolve());
+    assertSame(Frobber.class,
+               BBClientProxier.host(ClientProxyClassDefinition.of(g.generate(packageName + ".Frobber_Proxy",
+                                                                             tp.describe(Object.class.getName()).resolve(),
+                                                                             interfaces)),
+                                    cl));
+
+    // ...and cannot be defined if none of them is in its package.
+    final String otherPackageName = Glorp.class.getPackageName();
+    final IllegalStateException e =
+      assertThrows(IllegalStateException.class,
+                   () -> BBClientProxier.host(ClientProxyClassDefinition.of(g.generate(otherPackageName + ".Runnable_Proxy",
+                                                                                       tp.describe(Object.class.getName()).resolve(),
+                                                                                       List.of(interfaces.get(0)))),
+                                              cl));
+    assertEquals("No interface of " + otherPackageName + ".Runnable_Proxy is in package " + otherPackageName, e.getMessage());
+  }
+
+  @Test
+  final void testConstructorlessGeneratorIsRejected() {
+    final TypeElementTypePool tp = new TypeElementTypePool(this.domain);
+    // Client proxies are instantiated through constructors that such a generator omits.
+    assertThrows(IllegalArgumentException.class,
+                 () -> new BBClientProxier(this.domain, new TypeDefinitions(tp), new BBClientProxyClassGenerator(tp, CONSTRUCTORLESS)));
+  }
+
+  @Test
+  final void testAheadOfTimeClassIsLoadedOnlyIfCurrent(@TempDir final Path directory)
+    throws ClassNotFoundException, IOException, NoSuchFieldException {
+    final TypeElementTypePool tp = new TypeElementTypePool(this.domain);
+    final BBClientProxier p =
+      new BBClientProxier(this.domain, new TypeDefinitions(tp), new BBClientProxyClassGenerator(tp), new ClientProxyClassCache(0));
+
+    // Generated ahead of time by the same generator: loaded.
+    final ProxySpecification current =
+      new ProxySpecification(this.domain,
+                             new BeanTypes(this.domain).beanTypes(this.domain.declaredType(Florp.class.getCanonicalName())));
+    p.definition(current).saveIn(directory);
+
+    // Generated ahead of time with other options: ignored, and generated afresh.
+    final ProxySpecification stale =
+      new ProxySpecification(this.domain,
+                             new BeanTypes(this.domain).beanTypes(this.domain.declaredType(Snorp.class.getCanonicalName())));
+    new BBClientProxier(this.domain, new TypeDefinitions(tp), new BBClientProxyClassGenerator(tp, STABLE), new ClientProxyClassCache(0))
+      .definition(stale)
+      .saveIn(directory);
+
+    try (final URLClassLoader cl = new URLClassLoader(new URL[] { directory.toUri().toURL() }, Florp.class.getClassLoader())) {
+      assertSame(cl, p.clientProxyClass(current, cl).getClassLoader());
+      final Class<?> c = p.clientProxyClass(stale, cl);
+      assertSame(Snorp.class.getClassLoader(), c.getClassLoader()); // defined next to its superclass instead
+      assertThrows(NoSuchFieldException.class, () -> c.getDeclaredField("$proxiedInstance")); // not STABLE
+      assertNotNull(c.getField("$fingerprint"));
+    }
+  }
+
+  @Test
+  final void testStaleClassAlreadyDefinedIsNotUsed(@TempDir final Path directory)
+    throws IllegalAccessException, IOException {
+    final TypeElementTypePool tp = new TypeElementTypePool(this.domain);
+    final ProxySpecification ps =
+      new ProxySpecification(this.domain,
+                             new BeanTypes(this.domain).beanTypes(this.domain.declaredType(Plorp.class.getCanonicalName())));
+
+    // Generated ahead of time with other options, and already defined next to its superclass, so a fresh client proxy
+    // class cannot be defined in its place.
+    final ClientProxyClassDefinition stale =
+      new BBClientProxier(this.domain, new TypeDefinitions(tp), new BBClientProxyClassGenerator(tp, STABLE), new ClientProxyClassCache(0))
+      .definition(ps);
+    stale.saveIn(directory);
+    MethodHandles.lookup().defineClass(stale.bytes());
+
+    final BBClientProxier p =
+      new BBClientProxier(this.domain, new TypeDefinitions(tp), new BBClientProxyClassGenerator(tp), new ClientProxyClassCache(0));
+    try (final URLClassLoader cl = new URLClassLoader(new URL[] { directory.toUri().toURL() }, Plorp.class.getClassLoader())) {
+      // The stale client proxy class must not be returned in place of the fresh one.
+      assertThrows(LinkageError.class, () -> p.clientProxyClass(ps, cl));
+    }
+  }
+
+  @Test
+  final void testPreloadedDefinitionIsDefinition() {
+    final ProxySpecification ps =
+      new ProxySpecification(this.domain,
+                             new BeanTypes(this.domain).beanTypes(this.domain.declaredType(Blorper.class.getCanonicalName())));
+    final ClientProxyManifest m = new ClientProxyManifest();
+    m.record(ps);
+    assertEquals(1, m.size());
+    final TypeElementTypePool tp = new TypeElementTypePool(this.domain);
+    final ClientProxyClassCache cache = new ClientProxyClassCache(16);
+    final BBClientProxier p = new BBClientProxier(this.domain, new TypeDefinitions(tp), new BBClientProxyClassGenerator(tp), cache);
+    final List<Class<?>> classes;
+    try (final ExecutorService es = Executors.newFixedThreadPool(2)) {
+      classes = p.preload(m, Blorper.class.getClassLoader(), es);
+    }
+    assertEquals(1, classes.size());
+    assertTrue(Blorp.class.isAssignableFrom(classes.get(0)));
+    assertEquals(1, cache.size());
+    final ClientProxyClassDefinition d = cache.definitions().get(0);
+    // Same fingerprint, so nothing new is generated.
+    assertSame(d, p.definition(ps));
+    assertEquals(1, cache.size());
+    // Same bytes, including the generic signature of Blorp<String>.
+    assertArrayEquals(new BBClientProxier(this.domain,
+                                          new TypeDefinitions(tp),
+                                          new BBClientProxyClassGenerator(tp),
+                                          new ClientProxyClassCache(0))
+                      .definition(ps)
+                      .bytes(),
+                      d.bytes());
+  }
+
   static interface Frobber {
 
     String frob();
@@ -159,4 +474,98 @@ final class TestBBClientProxier {
 
   }
 
+  // Public so that client proxy classes in another ClassLoader can extend them.
+  public static class Florp {
+
+    public Florp() {
+      super();
+    }
+
+    public String florp() {
+      return "florp";
+    }
+
+  }
+
+  public static class Snorp {
+
+    public Snorp() {
+      super();
+    }
+
+    public String snorp() {
+      return "snorp";
+    }
+
+  }
+
+  public static class Zorp {
+
+    public Zorp() {
+      super();
+    }
+
+    public String zorp() {
+      return "zorp";
+    }
+
+  }
+
+  public static class Quorp {
+
+    public Quorp() {
+      super();
+    }
+
+    public String quorp() {
+      return "quorp";
+    }
+
+  }
+
+  // Used by only one test, since a client proxy class for it is defined in the test ClassLoader without a BBClientProxier.
+  public static class Plorp {
+
+    public Plorp() {
+      super();
+    }
+
+    public String plorp() {
+      return "plorp";
+    }
+
+  }
+
+  // No client proxy class can be generated for it, because it has no zero-argument constructor.
+  public static class Borked {
+
+    public Borked(final String borked) {
+      super();
+    }
+
+    public String borked() {
+      return "borked";
+    }
+
+  }
+
+  static interface Blorp<T> {
+
+    T blorp();
+
+  }
+
+  static class Blorper implements Blorp<String> {
+
+    Blorper() {
+      super();
+    }
+
+    @Override
+    public String blorp() {
+      return "blorp";
+    }
+
+  }
+
 }
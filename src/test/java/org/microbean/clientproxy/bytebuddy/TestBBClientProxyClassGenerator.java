@@ -21,10 +21,19 @@ import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+
+import java.util.concurrent.atomic.AtomicInteger;
 
 import java.util.function.Supplier;
 
+import net.bytebuddy.description.type.TypeDescription;
+
 import net.bytebuddy.dynamic.DynamicType;
 
 import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
@@ -34,16 +43,21 @@ import net.bytebuddy.pool.TypePool;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import org.junit.jupiter.api.io.TempDir;
+
 import org.microbean.construct.DefaultDomain;
 import org.microbean.construct.Domain;
 
 import org.microbean.reference.ClientProxy;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 final class TestBBClientProxyClassGenerator {
@@ -71,8 +85,8 @@ final class TestBBClientProxyClassGenerator {
     final Supplier<? extends Gorp> s = Gorp::new;
     final DynamicType.Loaded<?> dtl =
       this.g.generate(proxyClassName,
-                      this.typePool.describe(Gorp.class.getCanonicalName()).resolve(),
-                      List.of(this.typePool.describe(Cloneable.class.getCanonicalName()).resolve()))
+                      this.describe(Gorp.class),
+                      List.of(this.describe(Cloneable.class)))
       .load(this.getClass().getClassLoader(), ClassLoadingStrategy.UsingLookup.withFallback(MethodHandles::lookup));
     dtl.saveIn(new File(System.getProperty("project.build.testOutputDirectory")));
     final Class<?> cls = dtl.getLoaded();
@@ -103,6 +117,316 @@ final class TestBBClientProxyClassGenerator {
 
   }
 
+  @Test
+  final void testSaveIn(@TempDir final Path directory) throws IOException {
+    final String proxyClassName = "org.microbean.clientproxy.bytebuddy.GorpProxy1";
+    final ClientProxyClassDefinition d =
+      ClientProxyClassDefinition.of(this.g.generate(proxyClassName,
+                                                    this.describe(Gorp.class),
+                                                    List.of()));
+    assertEquals(proxyClassName, d.name());
+    assertEquals(Gorp.class.getName(), d.superclassName());
+    final Path file = d.saveIn(directory);
+    assertEquals(directory.resolve("org/microbean/clientproxy/bytebuddy/GorpProxy1.class"), file);
+    assertArrayEquals(d.bytes(), Files.readAllBytes(file));
+  }
+
+  @Test
+  final void testInvokedynamic() throws ReflectiveOperationException {
+    assertNotEquals(this.g.configuration(),
+                    new BBClientProxyClassGenerator(this.typePool, BBClientProxyClassGenerator.Option.INVOKEDYNAMIC).configuration());
+    final Class<?> cls =
+      this.load("org.microbean.clientproxy.bytebuddy.GorpProxy2", Gorp.class, BBClientProxyClassGenerator.Option.INVOKEDYNAMIC);
+    final Gorp gorp = new Gorp();
+    final ClientProxy<Gorp> cp0 = instantiate(cls, () -> gorp);
+    final ClientProxy<Gorp> cp1 = instantiate(cls, Gorp::new);
+    assertSame(gorp, cp0.$proxied());
+    assertEquals("frob", cp0.$cast().frob());
+    // A Supplier of a different class relinks the call site.
+    assertNotSame(cp1.$proxied(), cp1.$proxied());
+    assertEquals("frob", cp1.$cast().frob());
+    assertSame(gorp, cp0.$proxied());
+  }
+
+  @Test
+  final void testStable() throws ReflectiveOperationException {
+    final Class<?> cls =
+      this.load("org.microbean.clientproxy.bytebuddy.GorpProxy3", Gorp.class, BBClientProxyClassGenerator.Option.STABLE);
+    final AtomicInteger gets = new AtomicInteger();
+    final Supplier<Gorp> s = counting(gets);
+    final ClientProxy<Gorp> cp0 = instantiate(cls, s);
+    final ClientProxy<Gorp> cp1 = instantiate(cls, s);
+
+    final Gorp proxied = cp0.$proxied();
+    assertSame(proxied, cp0.$proxied());
+    assertEquals("frob", cp0.$cast().frob());
+    assertEquals(1, gets.get());
+
+    // Resolving cp0's contextual reference does not affect equality.
+    assertEquals(cp0, cp1);
+    assertEquals(cp0.hashCode(), cp1.hashCode());
+  }
+
+  @Test
+  final void testPerThread() throws InterruptedException, ReflectiveOperationException {
+    assertThrows(IllegalArgumentException.class,
+                 () -> new BBClientProxyClassGenerator(this.typePool,
+                                                       BBClientProxyClassGenerator.Option.STABLE,
+                                                       BBClientProxyClassGenerator.Option.PER_THREAD));
+    final Class<?> cls =
+      this.load("org.microbean.clientproxy.bytebuddy.GorpProxy4", Gorp.class, BBClientProxyClassGenerator.Option.PER_THREAD);
+    final AtomicInteger gets = new AtomicInteger();
+    final ClientProxy<Gorp> cp = instantiate(cls, counting(gets));
+    try {
+      final Gorp proxied = cp.$proxied();
+      assertSame(proxied, cp.$proxied());
+      assertEquals(1, gets.get());
+
+      // Another thread acquires its own.
+      final Thread t = new Thread(() -> assertNotSame(proxied, cp.$proxied()));
+      t.start();
+      t.join();
+      assertEquals(2, gets.get());
+
+      // The end of a unit of work.
+      ProxiedThreadCache.invalidate();
+      assertNotSame(proxied, cp.$proxied());
+      assertEquals(3, gets.get());
+    } finally {
+      ProxiedThreadCache.invalidate();
+    }
+  }
+
+  @Test
+  final void testFastIsEquivalent() {
+    // A small corpus of client proxy shapes.
+    final List<List<Class<?>>> corpus =
+      List.of(List.of(Gorp.class),
+              List.of(Gorp.class, Cloneable.class),
+              List.of(Blatz.class, Runnable.class),
+              List.of(Blatz.class, Runnable.class, Cloneable.class));
+    final List<List<BBClientProxyClassGenerator.Option>> optionSets =
+      List.of(List.of(),
+              List.of(BBClientProxyClassGenerator.Option.INVOKEDYNAMIC),
+              List.of(BBClientProxyClassGenerator.Option.STABLE),
+              List.of(BBClientProxyClassGenerator.Option.PER_THREAD));
+    for (final List<BBClientProxyClassGenerator.Option> options : optionSets) {
+      final List<BBClientProxyClassGenerator.Option> fastOptions = new ArrayList<>(options);
+      fastOptions.add(BBClientProxyClassGenerator.Option.FAST);
+      final BBClientProxyClassGenerator g =
+        new BBClientProxyClassGenerator(this.typePool, options.toArray(new BBClientProxyClassGenerator.Option[0]));
+      final BBClientProxyClassGenerator fast =
+        new BBClientProxyClassGenerator(this.typePool, fastOptions.toArray(new BBClientProxyClassGenerator.Option[0]));
+      for (final List<Class<?>> types : corpus) {
+        final String name = types.get(0).getName() + "Proxy";
+        final TypeDescription superclass = this.typePool.describe(types.get(0).getCanonicalName()).resolve();
+        final List<TypeDescription> interfaces = new ArrayList<>();
+        for (final Class<?> i : types.subList(1, types.size())) {
+          interfaces.add(this.typePool.describe(i.getCanonicalName()).resolve());
+        }
+        assertArrayEquals(ClientProxyClassDefinition.of(g.generate(name, superclass, interfaces)).bytes(),
+                          ClientProxyClassDefinition.of(fast.generate(name, superclass, interfaces)).bytes(),
+                          options + " " + types);
+      }
+    }
+  }
+
+  @Test
+  final void testIdentityToString() throws ReflectiveOperationException {
+    final Class<?> cls =
+      this.load("org.microbean.clientproxy.bytebuddy.GorpProxy8", Gorp.class, BBClientProxyClassGenerator.Option.IDENTITY_TO_STRING);
+    final AtomicInteger gets = new AtomicInteger();
+    final Supplier<Gorp> s = counting(gets);
+    final Object cp0 = instantiate(cls, s);
+    final Object cp1 = instantiate(cls, s);
+    final Object cp2 = instantiate(cls, Gorp::new);
+
+    // None of equals(Object), hashCode() or toString() acquires a contextual reference.
+    assertEquals(cls.getName() + "@" + Integer.toHexString(cp0.hashCode()), cp0.toString());
+    assertEquals(System.identityHashCode(s), cp0.hashCode());
+    assertEquals(cp0, cp1);
+    assertEquals(cp0.hashCode(), cp1.hashCode());
+    assertEquals(cp0.toString(), cp1.toString());
+    assertNotEquals(cp0, cp2);
+    assertNotEquals(cp0, s);
+    assertNotEquals(cp0, null);
+
+    // The name of a hidden client proxy class is known only once it is defined.
+    final Class<?> hidden =
+      MethodHandles.lookup()
+      .defineHiddenClass(new BBClientProxyClassGenerator(this.typePool, BBClientProxyClassGenerator.Option.IDENTITY_TO_STRING)
+                         .generate("org.microbean.clientproxy.bytebuddy.GorpProxy8", this.describe(Gorp.class), List.of())
+                         .getBytes(),
+                         true)
+      .lookupClass();
+    assertTrue(hidden.isHidden());
+    final Object cp3 = instantiate(hidden, s);
+    assertEquals(hidden.getName() + "@" + Integer.toHexString(cp3.hashCode()), cp3.toString());
+    assertEquals(0, gets.get());
+  }
+
+  @Test
+  final void testInstrumented() throws ReflectiveOperationException {
+    final Class<?> cls =
+      this.load("org.microbean.clientproxy.bytebuddy.GorpProxy9",
+                Gorp.class,
+                BBClientProxyClassGenerator.Option.STABLE,
+                BBClientProxyClassGenerator.Option.INSTRUMENTED);
+    assertEquals(Map.of(), ClientProxyMetrics.snapshot(cls));
+    final ClientProxy<Gorp> cp = instantiate(cls, Gorp::new);
+    final int samplingInterval = ClientProxyMetrics.samplingInterval();
+    ClientProxyMetrics.samplingInterval(1);
+    try {
+      for (int i = 0; i < 3; i++) {
+        assertEquals("frob", cp.$cast().frob());
+      }
+    } finally {
+      ClientProxyMetrics.samplingInterval(samplingInterval);
+    }
+    final Map<String, ClientProxyMetrics.Snapshot> snapshot = ClientProxyMetrics.snapshot(cls);
+    assertEquals(List.of("$acquireProxied()", "$proxied()", "frob()"), List.copyOf(snapshot.keySet()));
+    final ClientProxyMetrics.Snapshot frob = snapshot.get("frob()");
+    assertEquals(3, frob.calls());
+    assertEquals(3, frob.samples());
+    assertEquals(3, frob.histogram().stream().mapToLong(Long::longValue).sum());
+    assertEquals(3, snapshot.get("$proxied()").calls());
+    assertEquals(1, snapshot.get("$acquireProxied()").calls()); // STABLE
+    assertTrue(ClientProxyMetrics.snapshot().containsKey(cls));
+  }
+
+  @Test
+  final void testInterfacesOnly() throws ReflectiveOperationException {
+    final Class<?> cls = this.load("org.microbean.clientproxy.bytebuddy.FrobberProxy0", Object.class, List.of(Frobber.class));
+    assertSame(Object.class, cls.getSuperclass());
+    assertEquals(2, cls.getDeclaredFields().length); // just $proxiedSupplier and $hashCode
+    final Supplier<Frobber> s = () -> () -> "frob";
+    final Frobber cp = instantiate(cls, s);
+    assertEquals("frob", cp.frob());
+  }
+
+  @Test
+  final void testFingerprintIsRecorded() {
+    final TypeDescription superclass = this.describe(Gorp.class);
+    final String name = "org.microbean.clientproxy.bytebuddy.GorpProxy10";
+    assertEquals("0123abcd",
+                 Fingerprints.recorded(ClientProxyClassDefinition.of(this.g.generate(name, superclass, List.of(), "0123abcd")).bytes()));
+    assertNull(Fingerprints.recorded(ClientProxyClassDefinition.of(this.g.generate(name, superclass, List.of())).bytes()));
+  }
+
+  @Test
+  final void testReleaseDoesNotAffectGeneration() {
+    final TypeDescription superclass = this.describe(Gorp.class);
+    final String name = "org.microbean.clientproxy.bytebuddy.GorpProxy5";
+    final byte[] bytes = ClientProxyClassDefinition.of(this.g.generate(name, superclass, List.of())).bytes();
+    this.g.release();
+    assertArrayEquals(bytes, ClientProxyClassDefinition.of(this.g.generate(name, superclass, List.of())).bytes());
+  }
+
+  @Test
+  final void testSelective() throws ReflectiveOperationException {
+    final Class<?> cls =
+      this.load("org.microbean.clientproxy.bytebuddy.WideProxy0",
+                Wide.class,
+                List.of(Frobber.class),
+                BBClientProxyClassGenerator.Option.SELECTIVE);
+    cls.getDeclaredMethod("frob");
+    assertThrows(NoSuchMethodException.class, () -> cls.getDeclaredMethod("wide"));
+    final Wide w = instantiate(cls, () -> new Wide("contextual reference"));
+    assertEquals("contextual reference", w.frob());
+    assertEquals("client proxy", w.wide()); // falls through to the superclass
+  }
+
+  @Test
+  final void testCompact() throws ReflectiveOperationException {
+    final BBClientProxyClassGenerator compact =
+      new BBClientProxyClassGenerator(this.typePool, BBClientProxyClassGenerator.Option.COMPACT);
+    final TypeDescription blatz = this.describe(Blatz.class);
+    final String name = "org.microbean.clientproxy.bytebuddy.BlatzProxy0";
+    assertTrue(ClientProxyClassDefinition.of(compact.generate(name, blatz, List.of())).bytes().length <
+               ClientProxyClassDefinition.of(this.g.generate(name, blatz, List.of())).bytes().length);
+    final Class<?> cls =
+      this.load("org.microbean.clientproxy.bytebuddy.GorpProxy6", Gorp.class, BBClientProxyClassGenerator.Option.COMPACT);
+    assertSame(ClientProxy.class, cls.getGenericInterfaces()[0]); // erasure only
+    final Gorp cp = instantiate(cls, Gorp::new);
+    assertEquals("frob", cp.frob());
+  }
+
+  @Test
+  final void testProxiedIsInlineable() {
+    final TypeDescription gorp = this.describe(Gorp.class);
+    final String proxied = "$proxied()" + gorp.getDescriptor();
+    for (final BBClientProxyClassGenerator.Option o : List.of(BBClientProxyClassGenerator.Option.INVOKEDYNAMIC,
+                                                              BBClientProxyClassGenerator.Option.STABLE,
+                                                              BBClientProxyClassGenerator.Option.PER_THREAD)) {
+      final Map<String, Integer> codeSizes =
+        ClientProxyClassDefinition.of(new BBClientProxyClassGenerator(this.typePool, o)
+                                      .generate("org.microbean.clientproxy.bytebuddy.GorpProxy7", gorp, List.of()))
+        .codeSizes();
+      // HotSpot's default -XX:MaxInlineSize
+      assertTrue(codeSizes.get(proxied) <= 35, o + ": " + codeSizes);
+    }
+  }
+
+  // Generates a client proxy class with the supplied name and superclass using a BBClientProxyClassGenerator with the
+  // supplied Options, and loads it in this class' runtime package.
+  private final Class<?> load(final String name,
+                              final Class<?> superclass,
+                              final BBClientProxyClassGenerator.Option... options) {
+    return this.load(name, superclass, List.of(), options);
+  }
+
+  // Generates a client proxy class with the supplied name, superclass and interfaces using a
+  // BBClientProxyClassGenerator with the supplied Options, and loads it in this class' runtime package.
+  private final Class<?> load(final String name,
+                              final Class<?> superclass,
+                              final List<? extends Class<?>> interfaces,
+                              final BBClientProxyClassGenerator.Option... options) {
+    return new BBClientProxyClassGenerator(this.typePool, options)
+      .generate(name, this.describe(superclass), interfaces.stream().map(this::describe).toList())
+      .load(this.getClass().getClassLoader(), ClassLoadingStrategy.UsingLookup.withFallback(MethodHandles::lookup))
+      .getLoaded();
+  }
+
+  private final TypeDescription describe(final Class<?> c) {
+    return this.typePool.describe(c.getCanonicalName()).resolve();
+  }
+
+  // Returns a new client proxy of the supplied client proxy class whose contextual references come from the supplied
+  // Supplier.
+  @SuppressWarnings("unchecked")
+  private static final <T> T instantiate(final Class<?> cls, final Supplier<?> s) throws ReflectiveOperationException {
+    return (T)cls.getDeclaredConstructor(Supplier.class).newInstance(s);
+  }
+
+  // Returns a Supplier of new Gorps that counts them in the supplied AtomicInteger.
+  private static final Supplier<Gorp> counting(final AtomicInteger gets) {
+    return () -> {
+      gets.incrementAndGet();
+      return new Gorp();
+    };
+  }
+
+  private static abstract class Blatz implements Comparable<Blatz>, Runnable {
+
+    Blatz() {
+      super();
+    }
+
+    public abstract <T extends Number> T blatz(final List<? super T> list);
+
+    @Override // Comparable<Blatz>
+    public int compareTo(final Blatz other) {
+      return 0;
+    }
+
+  }
+
+  public static interface Frobber {
+
+    public String frob();
+
+  }
+
   private static class Gorp {
 
     Gorp() {
@@ -115,4 +439,28 @@ final class TestBBClientProxyClassGenerator {
 
   }
 
+  public static class Wide implements Frobber {
+
+    private final String name;
+
+    public Wide() {
+      this("client proxy");
+    }
+
+    public Wide(final String name) {
+      super();
+      this.name = name;
+    }
+
+    @Override // Frobber
+    public String frob() {
+      return this.name;
+    }
+
+    public String wide() {
+      return this.name;
+    }
+
+  }
+
 }
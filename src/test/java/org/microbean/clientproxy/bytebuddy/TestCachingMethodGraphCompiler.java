@@ -0,0 +1,67 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2025 microBean™.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.microbean.clientproxy.bytebuddy;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.Set;
+
+import java.util.stream.Collectors;
+
+import net.bytebuddy.description.method.MethodDescription;
+
+import net.bytebuddy.description.type.TypeDescription;
+
+import net.bytebuddy.dynamic.scaffold.MethodGraph;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+final class TestCachingMethodGraphCompiler {
+
+  private TestCachingMethodGraphCompiler() {
+    super();
+  }
+
+  @Test
+  final void testSameGraphAsDefault() {
+    final CachingMethodGraphCompiler c = new CachingMethodGraphCompiler();
+    for (final Class<?> k : new Class<?>[] { ArrayList.class, LinkedList.class, ArrayList.class }) {
+      final TypeDescription t = TypeDescription.ForLoadedType.of(k);
+      assertEquals(nodes(MethodGraph.Compiler.Default.forJavaHierarchy().compile(t)), nodes(c.compile(t)));
+    }
+  }
+
+  @Test
+  final void testSupertypesAreAnalyzedOnce() {
+    final CachingMethodGraphCompiler c = new CachingMethodGraphCompiler();
+    c.compile(TypeDescription.ForLoadedType.of(ArrayList.class));
+    final int size = c.size();
+    assertTrue(size > 0);
+    c.compile(TypeDescription.ForLoadedType.of(ArrayList.class));
+    assertEquals(size, c.size());
+    // LinkedList has supertypes, such as AbstractSequentialList and Deque, that ArrayList does not.
+    c.compile(TypeDescription.ForLoadedType.of(LinkedList.class));
+    assertTrue(c.size() > size);
+  }
+
+  private static final Set<String> nodes(final MethodGraph.Linked g) {
+    return g.listNodes().stream()
+      .map(n -> n.getSort() + " " + n.getRepresentative().toGenericString() + " " + n.getMethodTypes())
+      .collect(Collectors.toSet());
+  }
+
+}
@@ -0,0 +1,55 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2025 microBean™.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.microbean.clientproxy.bytebuddy;
+
+import java.io.IOException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.List;
+
+import java.util.jar.JarFile;
+
+import org.junit.jupiter.api.Test;
+
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+final class TestClientProxyClassArchive {
+
+  private TestClientProxyClassArchive() {
+    super();
+  }
+
+  @Test
+  final void testWriteIsReproducible(@TempDir final Path directory) throws IOException {
+    final ClientProxyClassDefinition a = new ClientProxyClassDefinition("a.Proxy", "a.A", new byte[] { 1 });
+    final ClientProxyClassDefinition b = new ClientProxyClassDefinition("b.Proxy", "b.B", new byte[] { 2 });
+    final Path jar0 = directory.resolve("0.jar");
+    final Path jar1 = directory.resolve("1.jar");
+    assertEquals(2, ClientProxyClassArchive.write(jar0, List.of(b, a, b)));
+    assertEquals(2, ClientProxyClassArchive.write(jar1, List.of(a, b)));
+    assertArrayEquals(Files.readAllBytes(jar0), Files.readAllBytes(jar1));
+    try (final JarFile jf = new JarFile(jar0.toFile())) {
+      assertNotNull(jf.getManifest());
+      assertArrayEquals(new byte[] { 1 }, jf.getInputStream(jf.getEntry("a/Proxy.class")).readAllBytes());
+      assertArrayEquals(new byte[] { 2 }, jf.getInputStream(jf.getEntry("b/Proxy.class")).readAllBytes());
+    }
+  }
+
+}
@@ -0,0 +1,155 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2025 microBean™.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.microbean.clientproxy.bytebuddy;
+
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.nio.file.attribute.FileTime;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+final class TestClientProxyClassCache {
+
+  private TestClientProxyClassCache() {
+    super();
+  }
+
+  @Test
+  final void testHitsMissesAndEvictions() {
+    final ClientProxyClassCache c = new ClientProxyClassCache(2);
+    final ClientProxyClassDefinition a = new ClientProxyClassDefinition("a.Proxy", "a.A", new byte[] { 1 });
+    final ClientProxyClassDefinition b = new ClientProxyClassDefinition("b.Proxy", "b.B", new byte[] { 2 });
+    final ClientProxyClassDefinition d = new ClientProxyClassDefinition("d.Proxy", "d.D", new byte[] { 3 });
+
+    assertNull(c.get("a"));
+    assertEquals(0L, c.hits());
+    assertEquals(1L, c.misses());
+
+    c.put("a", a);
+    c.put("b", b);
+    assertSame(a, c.get("a")); // a is now the most recently used
+    assertEquals(1L, c.hits());
+
+    c.put("d", d); // evicts b, the least recently used
+    assertEquals(2, c.size());
+    assertEquals(1L, c.evictions());
+    assertNull(c.get("b"));
+    assertSame(a, c.get("a"));
+    assertSame(d, c.get("d"));
+    assertEquals(3L, c.hits());
+    assertEquals(2L, c.misses());
+  }
+
+  @Test
+  final void testZeroMaximumSizeCachesNothing() {
+    final ClientProxyClassCache c = new ClientProxyClassCache(0);
+    c.put("a", new ClientProxyClassDefinition("a.Proxy", "a.A", new byte[0]));
+    assertEquals(0, c.size());
+    assertNull(c.get("a"));
+  }
+
+  @Test
+  final void testPersistentRoundTrip(@TempDir final Path directory) {
+    final ClientProxyClassDefinition a = new ClientProxyClassDefinition("a.Proxy", "a.A", new byte[] { 1, 2, 3 });
+    new ClientProxyClassCache(10, directory).put("a", a);
+
+    final ClientProxyClassCache c = new ClientProxyClassCache(10, directory); // as if in a new JVM
+    assertEquals(a, c.get("a"));
+    assertEquals(1L, c.persistentHits());
+    assertEquals(1L, c.hits());
+    c.get("a"); // now in memory
+    assertEquals(1L, c.persistentHits());
+    assertEquals(2L, c.hits());
+  }
+
+  @Test
+  final void testStaleAndCorruptEntriesAreMisses(@TempDir final Path directory) throws IOException {
+    new ClientProxyClassCache(10, directory).put("a", new ClientProxyClassDefinition("a.Proxy", "a.A", new byte[] { 1 }));
+
+    // Stale: stored under a different fingerprint.
+    Files.copy(directory.resolve("a.cpc"), directory.resolve("b.cpc"));
+    assertNull(new ClientProxyClassCache(10, directory).get("b"));
+
+    // Corrupt: flip a bit.
+    final Path file = directory.resolve("a.cpc");
+    final byte[] bytes = Files.readAllBytes(file);
+    bytes[bytes.length / 2] ^= 1;
+    Files.write(file, bytes);
+    assertNull(new ClientProxyClassCache(10, directory).get("a"));
+
+    // Truncated.
+    Files.write(file, new byte[] { 1, 2, 3 });
+    assertNull(new ClientProxyClassCache(10, directory).get("a"));
+  }
+
+  @Test
+  final void testStaleEntriesArePruned(@TempDir final Path directory) throws IOException {
+    final ClientProxyClassDefinition a = new ClientProxyClassDefinition("a.Proxy", "a.A", new byte[] { 1 });
+    new ClientProxyClassCache(10, directory).put("a", a);
+    final Path file = directory.resolve("a.cpc");
+    final byte[] bytes = Files.readAllBytes(file);
+    final FileTime longAgo = FileTime.from(Instant.now().minus(Duration.ofDays(31)));
+    final FileTime recently = FileTime.from(Instant.now().minus(Duration.ofDays(10)));
+    Files.setLastModifiedTime(file, recently);
+
+    // Written by an earlier generator version, and so never loadable again.
+    Files.write(directory.resolve("earlier.cpc"), withGeneratorVersion(bytes, BBClientProxyClassGenerator.VERSION - 1));
+    // Written by a later generator version, perhaps by another application version sharing the directory.
+    Files.write(directory.resolve("later.cpc"), withGeneratorVersion(bytes, BBClientProxyClassGenerator.VERSION + 1));
+    // Orphaned, for example because its superclass has changed since.
+    Files.copy(file, directory.resolve("unused.cpc"));
+    Files.setLastModifiedTime(directory.resolve("unused.cpc"), longAgo);
+    // Left behind by an interrupted store.
+    Files.write(directory.resolve("interrupted.tmp"), new byte[] { 1 });
+    Files.setLastModifiedTime(directory.resolve("interrupted.tmp"), longAgo);
+    // Not a client proxy class file at all.
+    Files.write(directory.resolve("garbage.cpc"), new byte[] { 1, 2, 3 });
+    // Not ours.
+    Files.write(directory.resolve("README"), new byte[0]);
+    Files.setLastModifiedTime(directory.resolve("README"), longAgo);
+
+    final ClientProxyClassCache c = new ClientProxyClassCache(10, directory); // as if in a new JVM
+    assertEquals(a, c.get("a"));
+    assertTrue(Files.getLastModifiedTime(file).compareTo(recently) > 0); // loading counts as using
+    assertFalse(Files.exists(directory.resolve("earlier.cpc")));
+    assertTrue(Files.exists(directory.resolve("later.cpc")));
+    assertFalse(Files.exists(directory.resolve("unused.cpc")));
+    assertFalse(Files.exists(directory.resolve("interrupted.tmp")));
+    assertFalse(Files.exists(directory.resolve("garbage.cpc")));
+    assertTrue(Files.exists(directory.resolve("README")));
+  }
+
+  private static final byte[] withGeneratorVersion(final byte[] bytes, final int version) {
+    final byte[] copy = bytes.clone();
+    ByteBuffer.wrap(copy).putInt(Integer.BYTES * 2, version); // after the magic number and format version
+    return copy;
+  }
+
+}
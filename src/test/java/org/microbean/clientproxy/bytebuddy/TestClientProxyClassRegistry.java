@@ -0,0 +1,168 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2025 microBean™.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.microbean.clientproxy.bytebuddy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+import java.lang.invoke.MethodHandles;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+final class TestClientProxyClassRegistry {
+
+  private TestClientProxyClassRegistry() {
+    super();
+  }
+
+  @Test
+  final void testGetAndPut() {
+    final ClientProxyClassRegistry r = new ClientProxyClassRegistry();
+    final ClassLoader cl = this.getClass().getClassLoader();
+    assertNull(r.get(cl, "a"));
+    r.put(cl, "a", String.class);
+    assertSame(String.class, r.get(cl, "a"));
+    assertNull(r.get(null, "a"));
+    assertEquals(1, r.size());
+    assertEquals(1, r.size(cl));
+    assertEquals(0, r.size(null));
+  }
+
+  @Test
+  final void testRedeploysDoNotPinClassLoaders() throws ClassNotFoundException, InterruptedException {
+    final ClientProxyClassRegistry r = new ClientProxyClassRegistry();
+    final ReferenceQueue<ClassLoader> q = new ReferenceQueue<>();
+    final List<WeakReference<ClassLoader>> loaders = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      loaders.add(redeploy(r, q));
+    }
+    await(q, loaders.size(), "ClassLoaders");
+    for (final WeakReference<ClassLoader> w : loaders) {
+      assertNull(w.get());
+    }
+    assertEquals(0, r.size());
+  }
+
+  @Test
+  final void testUnloadedClassesAreNotCounted() throws IOException, IllegalAccessException, InterruptedException {
+    final ClientProxyClassRegistry r = new ClientProxyClassRegistry();
+    final ClassLoader cl = this.getClass().getClassLoader();
+    final ReferenceQueue<Class<?>> q = new ReferenceQueue<>();
+    final WeakReference<Class<?>> c = define(r, cl, q);
+    assertEquals(1, r.size(cl));
+    // The ClassLoader is still in use, but the hidden class, like a hidden client proxy class, can be unloaded first.
+    await(q, 1, "hidden classes");
+    assertNull(c.get());
+    assertNull(r.get(cl, Deployed.class.getName()));
+    assertEquals(0, r.size(cl));
+    assertEquals(0, r.size());
+  }
+
+  // Registers a fresh copy of Deployed in a fresh ClassLoader, as a redeployed application would have, and returns a
+  // WeakReference to that ClassLoader, registered with the supplied ReferenceQueue. Nothing else refers to either once
+  // this method returns.
+  private static final WeakReference<ClassLoader> redeploy(final ClientProxyClassRegistry r,
+                                                           final ReferenceQueue<ClassLoader> q)
+    throws ClassNotFoundException {
+    final String name = Deployed.class.getName();
+    final ClassLoader cl = new Deployment();
+    final Class<?> c = Class.forName(name, false, cl);
+    assertNotSame(Deployed.class, c);
+    r.put(cl, name, c);
+    assertSame(c, r.get(cl, name));
+    return new WeakReference<>(cl, q);
+  }
+
+  // Registers a hidden copy of Deployed for the supplied ClassLoader and returns a WeakReference to it, registered with
+  // the supplied ReferenceQueue. Nothing else refers to it once this method returns.
+  private static final WeakReference<Class<?>> define(final ClientProxyClassRegistry r,
+                                                      final ClassLoader cl,
+                                                      final ReferenceQueue<Class<?>> q)
+    throws IOException, IllegalAccessException {
+    final byte[] bytes;
+    try (final InputStream is = cl.getResourceAsStream(Deployed.class.getName().replace('.', '/') + ".class")) {
+      bytes = is.readAllBytes();
+    }
+    final Class<?> c = MethodHandles.lookup().defineHiddenClass(bytes, false).lookupClass();
+    r.put(cl, Deployed.class.getName(), c);
+    assertSame(c, r.get(cl, Deployed.class.getName()));
+    return new WeakReference<>(c, q);
+  }
+
+  // Waits a bounded time for the supplied number of References to be enqueued on the supplied ReferenceQueue,
+  // requesting garbage collection as it goes, and fails if they are not.
+  private static final void await(final ReferenceQueue<?> q, final int count, final String referents)
+    throws InterruptedException {
+    int remaining = count;
+    for (int i = 0; remaining > 0 && i < 50; i++) {
+      System.gc();
+      Reference<?> x = q.remove(100L);
+      while (x != null) {
+        --remaining;
+        x = q.poll();
+      }
+    }
+    assertEquals(0, remaining, remaining + " of " + count + " " + referents + " still reachable after about 5 seconds");
+  }
+
+  public static final class Deployed {
+
+    public Deployed() {
+      super();
+    }
+
+  }
+
+  private static final class Deployment extends ClassLoader {
+
+    private Deployment() {
+      super(Deployment.class.getClassLoader());
+    }
+
+    @Override // ClassLoader
+    protected final Class<?> loadClass(final String name, final boolean resolve) throws ClassNotFoundException {
+      if (!name.equals(Deployed.class.getName())) {
+        return super.loadClass(name, resolve);
+      }
+      synchronized (this.getClassLoadingLock(name)) {
+        Class<?> c = this.findLoadedClass(name);
+        if (c == null) {
+          final byte[] bytes;
+          try (final InputStream is = this.getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+            bytes = is.readAllBytes();
+          } catch (final IOException e) {
+            throw new UncheckedIOException(e.getMessage(), e);
+          }
+          c = this.defineClass(name, bytes, 0, bytes.length);
+        }
+        return c;
+      }
+    }
+
+  }
+
+}
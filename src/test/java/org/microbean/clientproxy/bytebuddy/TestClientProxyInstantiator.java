@@ -0,0 +1,139 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2025 microBean™.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.microbean.clientproxy.bytebuddy;
+
+import java.lang.invoke.MethodHandles;
+
+import java.lang.reflect.InvocationTargetException;
+
+import java.util.List;
+
+import java.util.concurrent.CompletableFuture;
+
+import java.util.function.Supplier;
+
+import net.bytebuddy.pool.TypePool;
+
+import org.junit.jupiter.api.Test;
+
+import org.microbean.reference.ClientProxy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import static org.microbean.clientproxy.bytebuddy.BBClientProxyClassGenerator.Option.CONSTRUCTORLESS;
+
+final class TestClientProxyInstantiator {
+
+  private static int constructions;
+
+  private TestClientProxyInstantiator() {
+    super();
+  }
+
+  @Test
+  final void testSuperclassConstructorIsNotRun() throws IllegalAccessException {
+    final Class<?> c = define(Expensive.class, CONSTRUCTORLESS);
+    final Expensive real = new Expensive();
+    constructions = 0;
+    final Expensive e = (Expensive)ClientProxyInstantiator.instantiate(c, () -> real);
+    assertEquals(0, constructions);
+    assertNull(e.state);
+    assertEquals("expensive", e.name());
+    assertSame(real, assertInstanceOf(ClientProxy.class, e).$proxied());
+  }
+
+  @Test
+  final void testNoZeroArgumentConstructor() throws IllegalAccessException {
+    final Class<?> c = define(Unconstructible.class, CONSTRUCTORLESS);
+    assertEquals("unconstructible", ((Unconstructible)ClientProxyInstantiator.instantiate(c, () -> new Unconstructible(0))).name());
+  }
+
+  @Test
+  final void testProxiedSupplierCanBeSetOnlyOnce() throws IllegalAccessException, NoSuchMethodException {
+    final Class<?> c = define(Expensive.class, CONSTRUCTORLESS);
+    final Supplier<Expensive> s = Expensive::new;
+    final Object e = ClientProxyInstantiator.instantiate(c, s);
+    final InvocationTargetException x =
+      assertThrows(InvocationTargetException.class, () -> c.getMethod("$proxiedSupplier", Supplier.class).invoke(e, s));
+    assertInstanceOf(IllegalStateException.class, x.getCause());
+    assertEquals(System.identityHashCode(s), e.hashCode());
+    assertEquals(ClientProxyInstantiator.instantiate(c, s), e);
+  }
+
+  @Test
+  final void testHashCodeIsSuppliers() throws IllegalAccessException {
+    final Class<?> c = define(Expensive.class, CONSTRUCTORLESS);
+    final Expensive real = new Expensive();
+    final Supplier<Expensive> s = () -> real;
+    final Object e = ClientProxyInstantiator.instantiate(c, s);
+    assertEquals(System.identityHashCode(s), e.hashCode());
+    // Derived from the supplier, not written after it, so another thread sees the same value.
+    assertEquals(System.identityHashCode(s), CompletableFuture.supplyAsync(e::hashCode).join());
+  }
+
+  @Test
+  final void testInvalidArguments() throws IllegalAccessException {
+    assertThrows(NullPointerException.class, () -> ClientProxyInstantiator.instantiate(define(Expensive.class, CONSTRUCTORLESS), null));
+    // Generated with a constructor, not a $proxiedSupplier method
+    assertThrows(IllegalArgumentException.class, () -> ClientProxyInstantiator.instantiate(define(Expensive.class), Expensive::new));
+    assertThrows(IllegalArgumentException.class, () -> ClientProxyInstantiator.instantiate(String.class, Expensive::new));
+  }
+
+  private static final Class<?> define(final Class<?> superclass, final BBClientProxyClassGenerator.Option... options)
+    throws IllegalAccessException {
+    final TypePool tp = TypePool.Default.of(TestClientProxyInstantiator.class.getClassLoader());
+    final String name = superclass.getName() + "_Proxy" + (options.length == 0 ? "" : "_" + options[0]);
+    try {
+      return Class.forName(name, false, superclass.getClassLoader());
+    } catch (final ClassNotFoundException e) {
+      return MethodHandles.lookup()
+        .defineClass(ClientProxyClassDefinition.of(new BBClientProxyClassGenerator(tp, options)
+                                                   .generate(name, tp.describe(superclass.getName()).resolve(), List.of()))
+                     .bytes());
+    }
+  }
+
+  public static class Expensive {
+
+    private final int[] state;
+
+    public Expensive() {
+      super();
+      ++constructions;
+      this.state = new int[1 << 16];
+    }
+
+    public String name() {
+      return "expensive";
+    }
+
+  }
+
+  public static class Unconstructible {
+
+    public Unconstructible(final int i) {
+      super();
+    }
+
+    public String name() {
+      return "unconstructible";
+    }
+
+  }
+
+}
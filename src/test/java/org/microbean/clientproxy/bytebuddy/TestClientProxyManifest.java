@@ -0,0 +1,105 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2025 microBean™.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.microbean.clientproxy.bytebuddy;
+
+import java.io.IOException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.List;
+
+import javax.lang.model.type.TypeMirror;
+
+import net.bytebuddy.description.type.TypeDefinition;
+import net.bytebuddy.description.type.TypeDescription;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.junit.jupiter.api.io.TempDir;
+
+import org.microbean.construct.DefaultDomain;
+import org.microbean.construct.Domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+final class TestClientProxyManifest {
+
+  private Domain domain;
+
+  private TypeDefinitions tds;
+
+  private TestClientProxyManifest() {
+    super();
+  }
+
+  @BeforeEach
+  final void setup() {
+    this.domain = new DefaultDomain();
+    this.tds = new TypeDefinitions(new TypeElementTypePool(this.domain));
+  }
+
+  @Test
+  final void testReadWhatWasWritten(@TempDir final Path directory) throws IOException {
+    final Path file = directory.resolve("manifest");
+    Files.write(file, List.of("# comment",
+                              "b.Proxy\tb.B",
+                              "a.Proxy\ta.A\tjava.lang.Comparable<a.A>\tjava.io.Serializable"));
+    final ClientProxyManifest m = ClientProxyManifest.read(file);
+    assertEquals(List.of(new ClientProxyManifest.Entry("a.Proxy", "a.A", List.of("java.lang.Comparable<a.A>", "java.io.Serializable")),
+                         new ClientProxyManifest.Entry("b.Proxy", "b.B", List.of())),
+                 m.entries());
+    final Path file2 = directory.resolve("manifest2");
+    m.write(file2);
+    assertEquals(m.entries(), ClientProxyManifest.read(file2).entries());
+  }
+
+  @Test
+  final void testTypeSyntax() {
+    String s = "java.util.Map<java.lang.String,?+java.lang.Number[]>";
+    TypeMirror t = ClientProxyManifest.typeMirror(s, this.domain, null);
+    assertEquals(s, ClientProxyManifest.toString(t));
+    TypeDescription.Generic tdg = this.tds.typeDescriptionGeneric(t);
+    assertEquals(TypeDefinition.Sort.PARAMETERIZED, tdg.getSort());
+    assertEquals("java.util.Map", tdg.asErasure().getName());
+    final TypeDescription.Generic w = tdg.getTypeArguments().get(1);
+    assertEquals(TypeDefinition.Sort.WILDCARD, w.getSort());
+    assertTrue(w.getUpperBounds().getOnly().isArray());
+
+    // Type variables are those of the first declared type, normally a superclass.
+    s = "java.util.List<'E>";
+    t = ClientProxyManifest.typeMirror(s, this.domain, null);
+    assertEquals(s, ClientProxyManifest.toString(t));
+    assertEquals(TypeDefinition.Sort.VARIABLE_SYMBOLIC, this.tds.typeDescriptionGeneric(t).getTypeArguments().getOnly().getSort());
+    assertThrows(IllegalArgumentException.class,
+                 () -> ClientProxyManifest.typeMirror("java.lang.Comparable<'T>", this.domain, this.domain.typeElement("java.util.List")));
+
+    s = "java.util.List<?-java.lang.Integer>";
+    t = ClientProxyManifest.typeMirror(s, this.domain, null);
+    assertEquals(s, ClientProxyManifest.toString(t));
+    assertEquals(TypeDefinition.Sort.WILDCARD, this.tds.typeDescriptionGeneric(t).getTypeArguments().getOnly().getSort());
+
+    // A raw type remains raw.
+    t = ClientProxyManifest.typeMirror("java.lang.Comparable", this.domain, null);
+    assertEquals(this.tds.typeDescriptionGeneric(this.domain.declaredType(this.domain.typeElement("java.lang.Comparable"))),
+                 this.tds.typeDescriptionGeneric(t));
+
+    assertThrows(IllegalArgumentException.class, () -> ClientProxyManifest.typeMirror("java.util.List<", this.domain, null));
+    assertThrows(IllegalArgumentException.class, () -> ClientProxyManifest.typeMirror("no.such.Type", this.domain, null));
+  }
+
+}
@@ -0,0 +1,206 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2025 microBean™.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.microbean.clientproxy.bytebuddy;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.lang.reflect.InvocationTargetException;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.List;
+import java.util.Locale;
+
+import java.util.function.Supplier;
+
+import java.util.stream.Stream;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.jupiter.api.Test;
+
+import org.junit.jupiter.api.io.TempDir;
+
+import org.microbean.bean.BeanTypes;
+
+import org.microbean.construct.DefaultDomain;
+import org.microbean.construct.Domain;
+
+import org.microbean.reference.ClientProxy;
+import org.microbean.reference.ProxySpecification;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import static org.microbean.clientproxy.bytebuddy.BBClientProxyClassGenerator.Option.STABLE;
+
+final class TestClientProxyProcessor {
+
+  private TestClientProxyProcessor() {
+    super();
+  }
+
+  @Test
+  final void testProcessor(@TempDir final Path directory)
+    throws ClassNotFoundException, IOException, IllegalAccessException, InstantiationException, InvocationTargetException, NoSuchFieldException, NoSuchMethodException {
+    final Path classes = directory.resolve("classes");
+    final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    assertTrue(compile(directory, classes, "p.Bean", "STABLE,COMPACT", diagnostics), String.valueOf(diagnostics.getDiagnostics()));
+
+    final List<Path> classFiles;
+    try (final Stream<Path> s = Files.walk(classes)) {
+      classFiles = s.filter(p -> p.toString().endsWith(".class") && !p.endsWith(Path.of("p", "Bean.class"))).toList();
+    }
+    assertEquals(1, classFiles.size(), String.valueOf(classFiles));
+    final String name = classes.relativize(classFiles.get(0)).toString().replace(File.separatorChar, '.').replace(".class", "");
+
+    try (final URLClassLoader cl = new URLClassLoader(new URL[] { classes.toUri().toURL() }, this.getClass().getClassLoader())) {
+      final Class<?> bean = cl.loadClass("p.Bean");
+      final Class<?> c = cl.loadClass(name);
+      assertSame(bean, c.getSuperclass());
+      assertTrue(ClientProxy.class.isAssignableFrom(c));
+      assertNotNull(c.getDeclaredField("$proxiedInstance")); // generated with STABLE
+      assertNotNull(c.getField("$fingerprint"));
+      final Supplier<?> s = () -> {
+        try {
+          return bean.getConstructor().newInstance();
+        } catch (final ReflectiveOperationException e) {
+          throw new AssertionError(e);
+        }
+      };
+      final Object proxy = c.getConstructor(Supplier.class).newInstance(s);
+      assertEquals("hi", bean.getMethod("hi").invoke(proxy));
+    }
+  }
+
+  @Test
+  final void testInvalidOptions(@TempDir final Path directory) throws IOException {
+    for (final String options : List.of("NOPE", "STABLE,PER_THREAD", "CONSTRUCTORLESS")) {
+      final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+      assertFalse(compile(directory, directory.resolve(options.replace(',', '_')), "p.Bean", options, diagnostics), options);
+      assertTrue(diagnostics.getDiagnostics().stream()
+                 .anyMatch(d -> d.getKind() == Diagnostic.Kind.ERROR &&
+                           d.getMessage(Locale.ROOT).contains(ClientProxyProcessor.OPTIONS_OPTION)),
+                 String.valueOf(diagnostics.getDiagnostics()));
+    }
+  }
+
+  @Test
+  final void testRuntimeProxierAcceptsProcessorOutput(@TempDir final Path directory) throws ClassNotFoundException, IOException {
+    final Path classes = directory.resolve("classes");
+    final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    assertTrue(compile(directory, classes, Glarb.class.getCanonicalName(), "STABLE", diagnostics),
+               String.valueOf(diagnostics.getDiagnostics()));
+
+    final Domain domain = new DefaultDomain();
+    final ProxySpecification ps =
+      new ProxySpecification(domain, new BeanTypes(domain).beanTypes(domain.declaredType(Glarb.class.getCanonicalName())));
+    final Path classFile = classes.resolve(ps.name().replace('.', File.separatorChar) + ".class");
+    assertTrue(Files.exists(classFile), ps.name());
+
+    // The fingerprint the processor recorded, computed from javac's view of Glarb, is the one the run time computes
+    // from its own Domain's.
+    final TypeElementTypePool tp = new TypeElementTypePool(domain);
+    final BBClientProxyClassGenerator g = new BBClientProxyClassGenerator(tp, STABLE);
+    assertEquals(Fingerprints.fingerprint(ps.name(), ps.superclass(), ps.interfaces(), g.configuration(), true),
+                 Fingerprints.recorded(Files.readAllBytes(classFile)));
+
+    // So the class file is loaded as is, and nothing is generated.
+    final ClientProxyClassCache cache = new ClientProxyClassCache(16);
+    final BBClientProxier p = new BBClientProxier(domain, new TypeDefinitions(tp), g, cache);
+    try (final URLClassLoader cl = new URLClassLoader(new URL[] { classes.toUri().toURL() }, Glarb.class.getClassLoader())) {
+      final Class<?> c = p.clientProxyClass(ps, cl);
+      assertSame(cl, c.getClassLoader());
+      assertSame(Glarb.class, c.getSuperclass());
+    }
+    assertEquals(0, cache.size());
+    assertEquals(0L, cache.misses());
+  }
+
+  // Compiles p.Bean into the supplied output directory, running ClientProxyProcessor on it to generate client proxy
+  // classes for the supplied types with the supplied generator options.
+  private static final boolean compile(final Path directory,
+                                       final Path classes,
+                                       final String types,
+                                       final String options,
+                                       final DiagnosticCollector<JavaFileObject> diagnostics)
+    throws IOException {
+    final Path source = directory.resolve("src").resolve("p").resolve("Bean.java");
+    Files.createDirectories(source.getParent());
+    Files.writeString(source, """
+                      package p;
+
+                      public class Bean {
+
+                        public Bean() {
+                          super();
+                        }
+
+                        public String hi() {
+                          return "hi";
+                        }
+
+                      }
+                      """);
+    Files.createDirectories(classes);
+    // Whether tests run on the class path or the module path, everything the processor needs is on one of them.
+    final String path =
+      Stream.of(System.getProperty("jdk.module.path"), System.getProperty("java.class.path"))
+      .filter(p -> p != null && !p.isBlank())
+      .reduce((p0, p1) -> p0 + File.pathSeparator + p1)
+      .orElseThrow();
+    final JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+    try (final StandardJavaFileManager fm = javac.getStandardFileManager(diagnostics, Locale.ROOT, null)) {
+      return javac.getTask(null,
+                           fm,
+                           diagnostics,
+                           List.of("-d", classes.toString(),
+                                   "-classpath", path,
+                                   "-processorpath", path,
+                                   "-processor", ClientProxyProcessor.class.getName(),
+                                   "-A" + ClientProxyProcessor.TYPES_OPTION + "=" + types,
+                                   "-A" + ClientProxyProcessor.OPTIONS_OPTION + "=" + options),
+                           null,
+                           fm.getJavaFileObjects(source))
+        .call();
+    }
+  }
+
+  // Public so that client proxy classes in another ClassLoader can extend it.
+  public static class Glarb {
+
+    public Glarb() {
+      super();
+    }
+
+    public String glarb() {
+      return "glarb";
+    }
+
+  }
+
+}
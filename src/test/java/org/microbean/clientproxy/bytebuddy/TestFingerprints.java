@@ -0,0 +1,125 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2025 microBean™.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.microbean.clientproxy.bytebuddy;
+
+import java.net.URI;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+
+import javax.lang.model.SourceVersion;
+
+import javax.lang.model.element.TypeElement;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+final class TestFingerprints {
+
+  private static final String BEAN = """
+    package p;
+
+    public class Bean {
+
+      public Bean() {
+        super();
+      }
+
+      public String hi(%s final String %s) {
+        return "hi";
+      }
+
+    }
+    """;
+
+  private TestFingerprints() {
+    super();
+  }
+
+  @Test
+  final void testAnnotationsAreFingerprinted() {
+    final String plain = fingerprint(BEAN.formatted("", "s"), true);
+    final String annotated = fingerprint(BEAN.formatted("@Deprecated", "s"), true);
+    assertNotEquals(plain, annotated);
+    // A COMPACT generator copies no annotations, so they play no part.
+    assertEquals(fingerprint(BEAN.formatted("", "s"), false), fingerprint(BEAN.formatted("@Deprecated", "s"), false));
+    // Annotations that never reach a class file play no part either.
+    assertEquals(plain, fingerprint(BEAN.formatted("@SuppressWarnings(\"unused\")", "s"), true));
+  }
+
+  @Test
+  final void testParameterNamesAreFingerprinted() {
+    assertNotEquals(fingerprint(BEAN.formatted("", "s"), true), fingerprint(BEAN.formatted("", "t"), true));
+    assertEquals(fingerprint(BEAN.formatted("", "s"), false), fingerprint(BEAN.formatted("", "t"), false));
+  }
+
+  // Compiles the supplied source for p.Bean and returns the fingerprint of a client proxy class extending it.
+  private static final String fingerprint(final String source, final boolean metadata) {
+    final String[] fingerprint = new String[1];
+    final JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+    final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    final JavaCompiler.CompilationTask task =
+      javac.getTask(null,
+                    javac.getStandardFileManager(diagnostics, Locale.ROOT, null),
+                    diagnostics,
+                    List.of("-proc:only"),
+                    null,
+                    List.of(new SimpleJavaFileObject(URI.create("string:///p/Bean.java"), JavaFileObject.Kind.SOURCE) {
+                        @Override // SimpleJavaFileObject
+                        public final CharSequence getCharContent(final boolean ignoreEncodingErrors) {
+                          return source;
+                        }
+                      }));
+    task.setProcessors(List.of(new AbstractProcessor() {
+        @Override // AbstractProcessor
+        public final Set<String> getSupportedAnnotationTypes() {
+          return Set.of("*");
+        }
+        @Override // AbstractProcessor
+        public final SourceVersion getSupportedSourceVersion() {
+          return SourceVersion.latestSupported();
+        }
+        @Override // AbstractProcessor
+        public final boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnvironment) {
+          if (fingerprint[0] == null) {
+            fingerprint[0] =
+              Fingerprints.fingerprint("p.Bean_Proxy",
+                                       this.processingEnv.getElementUtils().getTypeElement("p.Bean").asType(),
+                                       List.of(),
+                                       "configuration",
+                                       metadata);
+          }
+          return false;
+        }
+      }));
+    assertTrue(task.call(), String.valueOf(diagnostics.getDiagnostics()));
+    assertNotNull(fingerprint[0]);
+    return fingerprint[0];
+  }
+
+}
@@ -0,0 +1,36 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil; coding: utf-8-unix -*-
+ *
+ * Copyright © 2025 microBean™.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.microbean.clientproxy.bytebuddy.other;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+
+// A superclass in a package other than that of the tests, for tests that need client proxy classes in more than one
+// package.
+public class Glorp {
+
+  public Glorp() {
+    super();
+  }
+
+  public String glorp() {
+    return "glorp";
+  }
+
+  // Client proxy classes can only be defined in this package through a Lookup that has access to it.
+  public static Lookup lookup() {
+    return MethodHandles.lookup();
+  }
+
+}